@@ -0,0 +1,126 @@
+package com.example.reactivemaster.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+    Throughput of the operator pipelines exercised in ReactiveMasterApplicationTests.
+    Each op/s is one full subscription over `size` elements; run with `-prof gc`
+    (the default jmh.args in the pom) to get gc.alloc.rate.norm per subscription.
+    All pipelines are synchronous, so subscribe() returns once the flux has completed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatorBenchmark {
+
+    public enum ElementType {
+        INTEGER(i -> i),
+        STRING(i -> "item-" + i);
+
+        private final Function<Integer, Object> factory;
+
+        ElementType(Function<Integer, Object> factory) {
+            this.factory = factory;
+        }
+    }
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    @Param({"INTEGER", "STRING"})
+    public ElementType elementType;
+
+    // elements are created once per trial so only the operator work is measured
+    private Flux<Object> source;
+    private Flux<Object> cached;
+
+    @Setup
+    public void setup() {
+        var elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            elements.add(elementType.factory.apply(i));
+        }
+        source = Flux.fromIterable(elements);
+        cached = source.cache();
+        cached.blockLast(); // fill the cache outside of the measurement
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole bh) {
+        consume(source.flatMap(Flux::just), bh);
+    }
+
+    @Benchmark
+    public void concatMap(Blackhole bh) {
+        consume(source.concatMap(Mono::just), bh);
+    }
+
+    @Benchmark
+    public void buffer(Blackhole bh) {
+        consume(source.buffer(16), bh);
+    }
+
+    @Benchmark
+    public void window(Blackhole bh) {
+        consume(source.window(16).flatMap(Flux::collectList), bh);
+    }
+
+    @Benchmark
+    public void switchMap(Blackhole bh) {
+        consume(source.switchMap(x -> Flux.just(x, x)), bh);
+    }
+
+    @Benchmark
+    public void collectMap(Blackhole bh) {
+        consume(source.collectMap(Function.identity(), Object::hashCode), bh);
+    }
+
+    @Benchmark
+    public void collectSortedList(Blackhole bh) {
+        consume(source.collectSortedList(naturalOrder()), bh);
+    }
+
+    @Benchmark
+    public void cache(Blackhole bh) {
+        consume(cached, bh);
+    }
+
+    @Benchmark
+    public void zip(Blackhole bh) {
+        consume(Flux.zip(source, source), bh);
+    }
+
+    private static void consume(Flux<?> flux, Blackhole bh) {
+        flux.subscribe(bh::consume, e -> { throw new IllegalStateException(e); });
+    }
+
+    private static void consume(Mono<?> mono, Blackhole bh) {
+        mono.subscribe(bh::consume, e -> { throw new IllegalStateException(e); });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Object> naturalOrder() {
+        return (a, b) -> ((Comparable) a).compareTo(b);
+    }
+}
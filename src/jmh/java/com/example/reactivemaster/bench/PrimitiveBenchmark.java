@@ -0,0 +1,90 @@
+package com.example.reactivemaster.bench;
+
+import com.example.reactivemaster.primitive.ChunkedFlux;
+import com.example.reactivemaster.primitive.IntFlux;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    The same map/filter/sum pipeline over boxed Flux<Integer>, over ChunkedFlux<Integer>
+    (still boxed, but one signal per chunk) and over IntFlux chunks.
+    Run with the default -prof gc to compare gc.alloc.rate.norm (bytes per op) as well as time.
+
+    mvn -Pjmh compile exec:exec -Djmh.args="PrimitiveBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Benchmark
+    public Long boxed() {
+        return Flux.range(0, size)
+                .map(x -> x * 3)
+                .filter(x -> (x & 1) == 0)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    @Benchmark
+    public Long primitive() {
+        return IntFlux.range(0, size)
+                .map(x -> x * 3)
+                .filter(x -> (x & 1) == 0)
+                .sum()
+                .block();
+    }
+
+    @Benchmark
+    public Long chunked() {
+        return ChunkedFlux.from(Flux.range(0, size))
+                .map(x -> x * 3)
+                .filter(x -> (x & 1) == 0)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    // longer chains with a thread hop: boxedChain crosses publishOn once per element, chunkedChain once per chunk
+    @Benchmark
+    public Long boxedChain() {
+        return Flux.range(0, size)
+                .map(x -> x * 3)
+                .filter(x -> (x & 1) == 0)
+                .flatMapIterable(x -> List.of(x, -x))
+                .publishOn(Schedulers.parallel())
+                .map(x -> x + 1)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long chunkedChain() {
+        return ChunkedFlux.from(Flux.range(0, size))
+                .map(x -> x * 3)
+                .filter(x -> (x & 1) == 0)
+                .flatMapIterable(x -> List.of(x, -x))
+                .publishOn(Schedulers.parallel())
+                .map(x -> x + 1)
+                .count()
+                .block();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.reactivemaster.bench;
+
+import com.example.reactivemaster.common.ByteBufs;
+import com.example.reactivemaster.common.HttpClientSettings;
+import com.example.reactivemaster.common.HttpClients;
+import com.example.reactivemaster.sec02.ProductClient;
+import com.example.reactivemaster.stub.StubServer;
+import com.example.reactivemaster.stub.StubServerSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+    End to end ProductClient load against an in-process StubServer: `lookups` concurrent lookups
+    of distinct ids per op, the server adding `latencyMillis` to every response.
+    One op = all lookups answered.
+
+    mvn -Pjmh compile exec:exec -Djmh.args="ProductClientBenchmark -p latencyMillis=5"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ProductClientBenchmark {
+
+    @Param({"1", "100"})
+    public int lookups;
+
+    @Param({"0", "5"})
+    public long latencyMillis;
+
+    @Param({"16", "4096"})
+    public int payloadSize;
+
+    private StubServer server;
+    private ProductClient productClient;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = StubServer.start(StubServerSettings.defaults().toBuilder()
+                .port(0)
+                .latency(Duration.ofMillis(latencyMillis))
+                .payloadSize(payloadSize)
+                .build());
+        productClient = new ProductClient(HttpClients.create(HttpClientSettings.defaults().toBuilder()
+                .baseUrl(server.baseUrl())
+                .build()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Long perIdRequests() {
+        return Flux.range(1, lookups)
+                .flatMap(productClient::getProductName)
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long batchedRequests() {
+        return Flux.range(1, lookups)
+                .flatMap(productClient::getProductNameBatched)
+                .count()
+                .block();
+    }
+
+    // same calls as perIdRequests, bodies kept as ByteBufs instead of decoded to Strings
+    @Benchmark
+    public Long perIdRequestsBytes() {
+        return Flux.range(1, lookups)
+                .flatMap(id -> ByteBufs.using(productClient.getProductNameBytes(id), body -> Mono.just(body.readableBytes())))
+                .count()
+                .block();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.reactivemaster.bench;
+
+import com.example.reactivemaster.common.VirtualThreadSchedulers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/*
+    The Flux.create pipelines from sec05 (SubscribeOn, publishOn, MultipleSubscribeOn)
+    run by `subscribers` concurrent subscriptions, each element doing `blockingMicros`
+    of parked (IO-like) work. One op = all subscriptions completed.
+
+    Throughput gives ops/s, SampleTime gives the p50/p99 of one op.
+    Thread usage is printed after every iteration: distinct threads that did element
+    work, plus live/peak JVM thread counts.
+
+    mvn -Pjmh compile exec:exec -Djmh.args="SchedulerBenchmark -p blockingMicros=1000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+    private static final int ELEMENTS_PER_SUBSCRIBER = 16;
+
+    public enum SchedulerType {
+        IMMEDIATE(Schedulers::immediate),
+        SINGLE(Schedulers::single),
+        PARALLEL(Schedulers::parallel),
+        BOUNDED_ELASTIC(Schedulers::boundedElastic),
+        NEW_PARALLEL(() -> Schedulers.newParallel("bench-parallel")),
+        VIRTUAL(() -> Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "bench-virtual")),
+        VIRTUAL_LIMITED(() -> VirtualThreadSchedulers.newVirtual("bench-virtual-limited", 256));
+
+        private final Supplier<Scheduler> factory;
+
+        SchedulerType(Supplier<Scheduler> factory) {
+            this.factory = factory;
+        }
+    }
+
+    public enum Topology {
+        SUBSCRIBE_ON,
+        PUBLISH_ON,
+        MULTIPLE_SUBSCRIBE_ON
+    }
+
+    @Param({"IMMEDIATE", "SINGLE", "PARALLEL", "BOUNDED_ELASTIC", "NEW_PARALLEL", "VIRTUAL", "VIRTUAL_LIMITED"})
+    public SchedulerType scheduler;
+
+    @Param({"SUBSCRIBE_ON", "PUBLISH_ON", "MULTIPLE_SUBSCRIBE_ON"})
+    public Topology topology;
+
+    @Param({"1", "64", "1024"})
+    public int subscribers;
+
+    @Param({"0", "100", "1000"})
+    public long blockingMicros;
+
+    private Scheduler instance;
+    private Flux<Integer> pipeline;
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        instance = scheduler.factory.get();
+        pipeline = switch (topology) {
+            case SUBSCRIBE_ON -> source(true).subscribeOn(instance);
+            case PUBLISH_ON -> source(false).publishOn(instance).doOnNext(this::work);
+            case MULTIPLE_SUBSCRIBE_ON -> source(true)
+                    .subscribeOn(instance)
+                    .subscribeOn(Schedulers.boundedElastic()); // the one closest to the source wins
+        };
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportThreads() {
+        var threads = ManagementFactory.getThreadMXBean();
+        System.out.printf("%n[%s/%s/%d subs] worker threads: %d, live platform threads: %d, peak: %d%n",
+                scheduler, topology, subscribers, workers.size(), threads.getThreadCount(), threads.getPeakThreadCount());
+        workers.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // the shared schedulers are not ours to dispose
+        if (scheduler == SchedulerType.NEW_PARALLEL || scheduler == SchedulerType.VIRTUAL || scheduler == SchedulerType.VIRTUAL_LIMITED) {
+            instance.dispose();
+        }
+    }
+
+    @Benchmark
+    public Integer subscriptions() {
+        return Flux.range(0, subscribers)
+                .flatMap(i -> pipeline, subscribers)
+                .blockLast();
+    }
+
+    private Flux<Integer> source(boolean workAtSource) {
+        return Flux.create(fluxSink -> {
+            for (int i = 1; i <= ELEMENTS_PER_SUBSCRIBER; i++) {
+                if (workAtSource) work(i);
+                fluxSink.next(i);
+            }
+            fluxSink.complete();
+        });
+    }
+
+    private void work(int element) {
+        workers.add(Thread.currentThread());
+        if (blockingMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(blockingMicros));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.reactivemaster.common;
+
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.util.annotation.Nullable;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    What the hand-written Sinks.Many (ConflatingSink, BufferedMulticastSink, MappedReplaySink) share:
+    the subscriber list, the terminal state and the emit* retry loops around the EmitFailureHandler.
+    Like the other Sinks.many(), the try* methods must not be called concurrently:
+    overlapping calls return FAIL_NON_SERIALIZED. A subclass only decides what an item does (next).
+ */
+public abstract class AbstractManySink<T, I extends DrainSubscription<T>> implements Sinks.Many<T> {
+    protected final CopyOnWriteArrayList<I> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger emitting = new AtomicInteger();
+    protected volatile boolean done;
+    protected volatile Throwable error;
+
+    // serialized, and never called once the sink has terminated
+    protected abstract Sinks.EmitResult next(T value);
+
+    // for next(): try* report failures instead of throwing, so a value it can't take ends the sink with onError
+    protected final Sinks.EmitResult fail(Throwable failure) {
+        terminated(failure);
+        return Sinks.EmitResult.FAIL_TERMINATED;
+    }
+
+    @Override
+    public final Sinks.EmitResult tryEmitNext(T value) {
+        if(!emitting.compareAndSet(0, 1)) return Sinks.EmitResult.FAIL_NON_SERIALIZED;
+        try {
+            if(done) return Sinks.EmitResult.FAIL_TERMINATED;
+            return next(value);
+        } finally {
+            emitting.set(0);
+        }
+    }
+
+    @Override
+    public final Sinks.EmitResult tryEmitComplete() {
+        return terminate(null);
+    }
+
+    @Override
+    public final Sinks.EmitResult tryEmitError(Throwable error) {
+        return terminate(error);
+    }
+
+    private Sinks.EmitResult terminate(@Nullable Throwable failure) {
+        if(!emitting.compareAndSet(0, 1)) return Sinks.EmitResult.FAIL_NON_SERIALIZED;
+        try {
+            if(done) return Sinks.EmitResult.FAIL_TERMINATED;
+            terminated(failure);
+            return Sinks.EmitResult.OK;
+        } finally {
+            emitting.set(0);
+        }
+    }
+
+    // with the emit guard held
+    private void terminated(@Nullable Throwable failure) {
+        error = failure;
+        done = true;
+        subscribers.forEach(DrainSubscription::drain);
+    }
+
+    @Override
+    public final void emitNext(T value, Sinks.EmitFailureHandler failureHandler) {
+        Sinks.EmitResult result;
+        do {
+            result = tryEmitNext(value);
+        } while (result.isFailure() && failureHandler.onEmitFailure(SignalType.ON_NEXT, result));
+    }
+
+    @Override
+    public final void emitComplete(Sinks.EmitFailureHandler failureHandler) {
+        Sinks.EmitResult result;
+        do {
+            result = tryEmitComplete();
+        } while (result.isFailure() && failureHandler.onEmitFailure(SignalType.ON_COMPLETE, result));
+    }
+
+    @Override
+    public final void emitError(Throwable error, Sinks.EmitFailureHandler failureHandler) {
+        Sinks.EmitResult result;
+        do {
+            result = tryEmitError(error);
+        } while (result.isFailure() && failureHandler.onEmitFailure(SignalType.ON_ERROR, result));
+    }
+
+    @Override
+    public int currentSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    @Nullable
+    public Object scanUnsafe(Attr key) {
+        if(key == Attr.TERMINATED) return done;
+        if(key == Attr.ERROR) return error;
+        return null;
+    }
+}
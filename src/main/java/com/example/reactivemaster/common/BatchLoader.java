@@ -0,0 +1,81 @@
+package com.example.reactivemaster.common;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+    DataLoader-style batching: load(key) calls arriving within `maxDelay` of each other (or until
+    `maxBatchSize` of them piled up) are sent as ONE call to the batch function, and its
+    Map<key, value> answer is split back out to every waiting Mono.
+    Keys missing from the answer complete empty, a failed batch fails every Mono in it.
+ */
+@Slf4j
+public final class BatchLoader<K, V> implements Disposable {
+    private static final int MAX_CONCURRENT_BATCHES = 16;
+
+    private final Function<? super List<K>, ? extends Mono<? extends Map<K, ? extends V>>> batchFunction;
+    private volatile FluxSink<Pending<K, V>> pending; // FluxSink.next is safe to call from many threads
+    private final Disposable pipeline;
+    private volatile boolean disposed;
+
+    public BatchLoader(Function<? super List<K>, ? extends Mono<? extends Map<K, ? extends V>>> batchFunction,
+                       int maxBatchSize,
+                       Duration maxDelay) {
+        this.batchFunction = batchFunction;
+        this.pipeline = Flux.<Pending<K, V>>create(sink -> this.pending = sink)
+                .bufferTimeout(maxBatchSize, maxDelay, true)
+                .flatMap(this::dispatch, MAX_CONCURRENT_BATCHES)
+                .subscribe();
+    }
+
+    // fails with IllegalStateException once the loader is disposed
+    public Mono<V> load(K key) {
+        return Mono.defer(() -> {
+            if(disposed) return Mono.error(new IllegalStateException("BATCH LOADER IS DISPOSED"));
+            var result = Sinks.<V>one();
+            pending.next(new Pending<>(key, result));
+            // raced with dispose(): the key may have been dropped by the completed sink, or with the pipeline
+            if(disposed) result.tryEmitError(new IllegalStateException("BATCH LOADER IS DISPOSED"));
+            return result.asMono();
+        });
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        pending.complete();
+        pipeline.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pipeline.isDisposed();
+    }
+
+    private Mono<Void> dispatch(List<Pending<K, V>> batch) {
+        var keys = batch.stream().map(Pending::key).distinct().toList();
+        log.debug("LOADING BATCH OF {} KEYS FOR {} CALLERS", keys.size(), batch.size());
+        return Mono.defer(() -> batchFunction.apply(keys))
+                .doOnNext(values -> batch.forEach(p -> {
+                    var value = values.get(p.key());
+                    if(value==null) p.result().tryEmitEmpty();
+                    else p.result().tryEmitValue(value);
+                }))
+                .doOnError(error -> batch.forEach(p -> p.result().tryEmitError(error)))
+                .doFinally(signal -> batch.forEach(p -> p.result().tryEmitEmpty())) // empty answer or cancelled
+                .onErrorResume(error -> Mono.empty()) // already delivered, keep the loader alive
+                .then();
+    }
+
+    private record Pending<K, V>(K key, Sinks.One<V> result) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.reactivemaster.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Function;
+
+/*
+    Working with response bodies as ByteBufs instead of Strings: no heap copy, no UTF-8 decode.
+    The price is reference counting. The rules used here:
+      - a Mono<ByteBuf>/Flux<ByteBuf> handed out *retained* belongs to whoever receives the item,
+        and that receiver calls release() exactly once (or goes through using()).
+      - buffers read off responseContent() are NOT retained: reactor-netty releases them
+        as soon as onNext returns, so they must be consumed synchronously or retain()-ed first.
+ */
+public final class ByteBufs {
+    private static final int WRITE_PREFETCH = 16;
+
+    private ByteBufs() {
+    }
+
+    /*
+        Runs `body` against a retained buffer and releases it once the returned Mono terminates
+        or is cancelled. The buffer must not escape `body` (copy it, or retain it again, if it has to).
+     */
+    public static <T> Mono<T> using(Mono<ByteBuf> retained, Function<? super ByteBuf, ? extends Mono<? extends T>> body) {
+        return Mono.usingWhen(retained, body, ByteBufs::releaseLater);
+    }
+
+    /*
+        Forwards raw bytes into a channel without ever decoding them, returning the number of bytes written.
+        The chunks are retained before crossing to boundedElastic (the write blocks) and released
+        after they're written, or when they're discarded on cancel/error, so the caller keeps ownership
+        of whatever it passed in: responseContent() works as is.
+     */
+    public static Mono<Long> transferTo(Flux<ByteBuf> content, WritableByteChannel channel) {
+        return content
+                .map(ByteBuf::retain)
+                .publishOn(Schedulers.boundedElastic(), WRITE_PREFETCH)
+                .map(chunk -> {
+                    try {
+                        return write(chunk, channel);
+                    } finally {
+                        chunk.release();
+                    }
+                })
+                .reduce(0L, Long::sum)
+                .doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease);
+    }
+
+    private static long write(ByteBuf chunk, WritableByteChannel channel) {
+        long written = 0;
+        try {
+            // direct buffers expose their memory as ByteBuffer views, nothing is copied to the heap
+            for (var view : chunk.nioBuffers()) {
+                while (view.hasRemaining()) {
+                    written += channel.write(view);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    private static Mono<Void> releaseLater(ByteBuf buf) {
+        return Mono.fromRunnable(() -> ReferenceCountUtil.safeRelease(buf));
+    }
+}
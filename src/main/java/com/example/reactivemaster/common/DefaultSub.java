@@ -4,12 +4,36 @@ import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
 @Slf4j
 public class DefaultSub<T> implements Subscriber<T> {
     private final String name;
+    /*
+        In metrics mode onNext only bumps counters, nothing is formatted or logged
+        except one item every `sampleEvery` items (0 = never).
+     */
+    private final boolean metricsOnly;
+    private final long sampleEvery;
+    private final ToLongFunction<? super T> sizeOf;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private volatile long firstItemNanos;
+    private volatile long lastItemNanos;
+    private long seen; // onNext is serialized, a plain counter is enough for sampling
 
     public DefaultSub(String name) {
+        this(name, false, 0, DefaultSub::estimateSize);
+    }
+
+    public DefaultSub(String name, boolean metricsOnly, long sampleEvery, ToLongFunction<? super T> sizeOf) {
         this.name = name.isBlank()?"ANONYMOUS":name;
+        this.metricsOnly = metricsOnly;
+        this.sampleEvery = sampleEvery;
+        this.sizeOf = sizeOf;
     }
 
     @Override
@@ -19,16 +43,61 @@ public class DefaultSub<T> implements Subscriber<T> {
 
     @Override
     public void onNext(T item) {
-        log.info("{} RECEIVED ITEM: {}", name, item);
+        if(!metricsOnly) {
+            log.info("{} RECEIVED ITEM: {}", name, item);
+            return;
+        }
+        var now = System.nanoTime();
+        if(firstItemNanos==0) firstItemNanos = now;
+        lastItemNanos = now;
+        items.increment();
+        bytes.add(sizeOf.applyAsLong(item));
+        if(sampleEvery>0 && ++seen % sampleEvery==0) {
+            log.info("{} SAMPLED ITEM #{}: {}", name, seen, item);
+        }
     }
 
     @Override
     public void onError(Throwable throwable) {
         log.info("{} CAUSED ERROR: {}", name, throwable.getMessage());
+        logMetrics();
     }
 
     @Override
     public void onComplete() {
         log.info("{} RECEIVED COMPLETED",name);
+        logMetrics();
+    }
+
+    public long itemCount() {
+        return items.sum();
+    }
+
+    public long byteCount() {
+        return bytes.sum();
+    }
+
+    // time between the first and the last received item, zero until two items arrived
+    public Duration activeDuration() {
+        var first = firstItemNanos;
+        return first==0 ? Duration.ZERO : Duration.ofNanos(lastItemNanos - first);
+    }
+
+    private void logMetrics() {
+        if(!metricsOnly) return;
+        var duration = activeDuration();
+        var count = itemCount();
+        var rate = duration.isZero() ? count : count * 1_000_000_000.0 / duration.toNanos();
+        log.info("{} METRICS: {} ITEMS, {} BYTES IN {} ({} ITEMS/S)", name, count, byteCount(), duration, String.format("%.0f", rate));
+    }
+
+    // cheap size estimate for the item types used across the demos, no serialization involved
+    static long estimateSize(Object item) {
+        if(item instanceof CharSequence s) return s.length();
+        if(item instanceof byte[] b) return b.length;
+        if(item instanceof ByteBuffer b) return b.remaining();
+        if(item instanceof Integer || item instanceof Float) return Integer.BYTES;
+        if(item instanceof Long || item instanceof Double) return Long.BYTES;
+        return 0;
     }
 }
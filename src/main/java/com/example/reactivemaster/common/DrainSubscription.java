@@ -0,0 +1,128 @@
+package com.example.reactivemaster.common;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Operators;
+import reactor.util.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    The subscriber side of the hand-written multicast publishers (ConflatingSink, BufferedMulticastSink,
+    MappedReplaySink, RingReplay). Same drain loop as SubscriptionImpl: whoever moves wip from 0 emits,
+    everybody else just bumps it so the emitting thread goes round once more.
+    A subclass only says where its items come from (poll/isEmpty), how its source ended (isDone/error)
+    and how it joins and leaves the subscribers the source signals (register/unregister).
+ */
+public abstract class DrainSubscription<T> implements Subscription {
+    private final Subscriber<? super T> actual;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Throwable requestError;
+    private volatile boolean cancelled;
+
+    protected DrainSubscription(Subscriber<? super T> actual) {
+        this.actual = actual;
+    }
+
+    // the next item, or null if there's none to deliver yet; only called by the drain loop
+    @Nullable
+    protected abstract T poll();
+
+    protected abstract boolean isEmpty();
+
+    // read before poll(): an item stored before the terminal signal is not lost
+    protected abstract boolean isDone();
+
+    // how the source ended once isDone(), null to complete
+    @Nullable
+    protected abstract Throwable error();
+
+    protected abstract void register();
+
+    protected abstract void unregister();
+
+    // an error to end with right away, without delivering what's left
+    @Nullable
+    protected Throwable cutOff() {
+        return null;
+    }
+
+    // the items just delivered used up all the demand
+    protected void onDemandExhausted() {
+    }
+
+    /*
+        onSubscribe goes first (rule 1.9): the source can't signal a subscriber it can't see,
+        so no onNext/onComplete/onError can overtake it. The drain afterwards picks up a source
+        that terminated before we were registered.
+     */
+    public final void start() {
+        actual.onSubscribe(this);
+        register();
+        if(cancelled) unregister(); // cancelled from onSubscribe, before it was registered
+        else drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if(n <= 0) {
+            // rule 3.9, delivered by the drain loop: an onNext may be running right now
+            requestError = new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n);
+        } else {
+            requested.accumulateAndGet(n, Operators::addCap);
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        unregister();
+    }
+
+    public final boolean isCancelled() {
+        return cancelled;
+    }
+
+    public final long requested() {
+        return requested.get();
+    }
+
+    public final void drain() {
+        if(wip.getAndIncrement() != 0) return;
+        var missed = 1;
+        do {
+            var r = requested.get();
+            var e = 0L;
+            while (!cancelled) {
+                var kicked = requestError == null ? cutOff() : requestError;
+                if(kicked != null) {
+                    terminate(kicked);
+                    break;
+                }
+                var done = isDone();
+                if(e != r) {
+                    var value = poll();
+                    if(value != null) {
+                        actual.onNext(value);
+                        e++;
+                        continue;
+                    }
+                }
+                if(done && isEmpty()) terminate(error());
+                break;
+            }
+            if(e != 0 && r != Long.MAX_VALUE && requested.addAndGet(-e) == 0) onDemandExhausted();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void terminate(@Nullable Throwable failure) {
+        cancelled = true;
+        unregister();
+        if(failure == null) actual.onComplete();
+        else actual.onError(failure);
+    }
+}
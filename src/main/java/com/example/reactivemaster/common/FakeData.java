@@ -0,0 +1,126 @@
+package com.example.reactivemaster.common;
+
+import com.github.javafaker.Faker;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/*
+    Drop-in for the handful of Faker calls the demos make per element.
+    Faker is only used once, on class init, to fill fixed-size pools; after that every
+    call is an array lookup driven by ThreadLocalRandom, so producers on different threads
+    neither parse locale data nor share a Random.
+ */
+public final class FakeData {
+    private static final int POOL_SIZE = 1024;
+    private static final FakeData INSTANCE = new FakeData(Faker.instance(), POOL_SIZE);
+
+    private final String[] fullNames;
+    private final String[] firstNames;
+    private final String[] emails;
+    private final String[] productNames;
+    private final String[] prices;
+    private final String[] countries;
+
+    private final Name name = new Name();
+    private final Internet internet = new Internet();
+    private final Commerce commerce = new Commerce();
+    private final Country country = new Country();
+    private final RandomService random = new RandomService();
+
+    private FakeData(Faker faker, int poolSize) {
+        this.fullNames = pool(poolSize, () -> faker.name().fullName());
+        this.firstNames = pool(poolSize, () -> faker.name().firstName());
+        this.emails = pool(poolSize, () -> faker.internet().emailAddress());
+        this.productNames = pool(poolSize, () -> faker.commerce().productName());
+        this.prices = pool(poolSize, () -> faker.commerce().price());
+        this.countries = pool(poolSize, () -> faker.country().name());
+    }
+
+    public static FakeData instance() {
+        return INSTANCE;
+    }
+
+    public Name name() {
+        return name;
+    }
+
+    public Internet internet() {
+        return internet;
+    }
+
+    public Commerce commerce() {
+        return commerce;
+    }
+
+    public Country country() {
+        return country;
+    }
+
+    public RandomService random() {
+        return random;
+    }
+
+    public final class Name {
+        public String fullName() {
+            return pick(fullNames);
+        }
+
+        public String firstName() {
+            return pick(firstNames);
+        }
+    }
+
+    public final class Internet {
+        public String emailAddress() {
+            return pick(emails);
+        }
+    }
+
+    public final class Commerce {
+        public String productName() {
+            return pick(productNames);
+        }
+
+        public String price() {
+            return pick(prices);
+        }
+    }
+
+    public final class Country {
+        public String name() {
+            return pick(countries);
+        }
+    }
+
+    // same bounds as Faker's RandomService: both min and max are inclusive
+    public static final class RandomService {
+        public int nextInt(int min, int max) {
+            return ThreadLocalRandom.current().nextInt(min, max + 1);
+        }
+
+        public int nextInt(int bound) {
+            return ThreadLocalRandom.current().nextInt(bound);
+        }
+
+        public double nextDouble() {
+            return ThreadLocalRandom.current().nextDouble();
+        }
+
+        public boolean nextBoolean() {
+            return ThreadLocalRandom.current().nextBoolean();
+        }
+    }
+
+    private static String pick(String[] pool) {
+        return pool[ThreadLocalRandom.current().nextInt(pool.length)];
+    }
+
+    private static String[] pool(int size, Supplier<String> generator) {
+        var pool = new String[size];
+        for(int i=0; i<size; i++) {
+            pool[i] = generator.get();
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.reactivemaster.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ByteProcessor;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+    responseContent().asString() hands out one String per TCP chunk, wherever the chunk happens to end.
+    This works on the ByteBufs instead: bytes are appended to one cumulation buffer per subscription,
+    complete frames are cut out of it and only those are decoded, one String per record.
+
+    Each incoming ByteBuf is copied into the cumulation inside onNext, so the decoder never holds on
+    to (or has to release) the caller's buffers. Read-ahead is bounded by `prefetch`: at most that many
+    chunks are requested from the connection, reactor-netty stops reading the socket when demand runs out.
+ */
+public final class FrameDecoder {
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024;
+    public static final int DEFAULT_PREFETCH = 32;
+
+    public enum Framing {
+        NEWLINE,         // "record\n", a trailing "\r" is dropped
+        LENGTH_PREFIXED  // [int length, big endian][length bytes]
+    }
+
+    private FrameDecoder() {
+    }
+
+    public static Flux<String> lines(Flux<ByteBuf> content) {
+        return decode(content, Framing.NEWLINE, DEFAULT_MAX_FRAME_LENGTH, DEFAULT_PREFETCH);
+    }
+
+    public static Flux<String> decode(Flux<ByteBuf> content, Framing framing, int maxFrameLength, int prefetch) {
+        if(maxFrameLength <= 0) throw new IllegalArgumentException("MAX FRAME LENGTH MUST BE > 0");
+        if(prefetch <= 0) throw new IllegalArgumentException("PREFETCH MUST BE > 0");
+        return Flux.defer(() -> {
+            var state = new State(framing, maxFrameLength, StandardCharsets.UTF_8);
+            return content
+                    .map(state::decode)
+                    .concatMapIterable(Function.identity(), prefetch)
+                    .concatWith(Flux.defer(state::remainder))
+                    .doFinally(signal -> state.release());
+        });
+    }
+
+    /*
+        Guarded by its own monitor: decode() runs on the connection's thread,
+        release() may run on whichever thread cancels.
+     */
+    private static final class State {
+        private final Framing framing;
+        private final int maxFrameLength;
+        private final Charset charset;
+        private ByteBuf cumulation = ByteBufAllocator.DEFAULT.buffer();
+        private int scanned; // bytes after readerIndex already searched for '\n'
+
+        State(Framing framing, int maxFrameLength, Charset charset) {
+            this.framing = framing;
+            this.maxFrameLength = maxFrameLength;
+            this.charset = charset;
+        }
+
+        synchronized List<String> decode(ByteBuf chunk) {
+            if(cumulation == null) return List.of(); // released by a concurrent cancel
+            cumulation.writeBytes(chunk, chunk.readerIndex(), chunk.readableBytes());
+            var frames = new ArrayList<String>();
+            if(framing == Framing.NEWLINE) splitLines(frames);
+            else splitLengthPrefixed(frames);
+            cumulation.discardSomeReadBytes();
+            return frames;
+        }
+
+        private void splitLines(List<String> frames) {
+            while (true) {
+                var start = cumulation.readerIndex();
+                var end = cumulation.forEachByte(start + scanned, cumulation.readableBytes() - scanned, ByteProcessor.FIND_LF);
+                if(end < 0) {
+                    scanned = cumulation.readableBytes();
+                    if(scanned > maxFrameLength) throw tooLong();
+                    return;
+                }
+                var length = end - start;
+                if(length > maxFrameLength) throw tooLong();
+                frames.add(line(start, length));
+                cumulation.readerIndex(end + 1);
+                scanned = 0;
+            }
+        }
+
+        private void splitLengthPrefixed(List<String> frames) {
+            while (cumulation.readableBytes() >= Integer.BYTES) {
+                var length = cumulation.getInt(cumulation.readerIndex());
+                if(length < 0 || length > maxFrameLength) throw tooLong();
+                if(cumulation.readableBytes() < Integer.BYTES + length) return;
+                cumulation.skipBytes(Integer.BYTES);
+                frames.add(cumulation.readCharSequence(length, charset).toString());
+            }
+        }
+
+        // what is left once the response completed: a last line without '\n', or a cut off frame
+        synchronized Flux<String> remainder() {
+            if(cumulation == null || !cumulation.isReadable()) return Flux.empty();
+            if(framing == Framing.LENGTH_PREFIXED)
+                return Flux.error(new IllegalStateException("TRUNCATED FRAME: " + cumulation.readableBytes() + " BYTES LEFT"));
+            var last = line(cumulation.readerIndex(), cumulation.readableBytes());
+            cumulation.skipBytes(cumulation.readableBytes());
+            return Flux.just(last);
+        }
+
+        synchronized void release() {
+            if(cumulation != null) {
+                cumulation.release();
+                cumulation = null;
+            }
+        }
+
+        private String line(int index, int length) {
+            if(length > 0 && cumulation.getByte(index + length - 1) == '\r') length--;
+            return cumulation.toString(index, length, charset);
+        }
+
+        private IllegalStateException tooLong() {
+            return new IllegalStateException("FRAME EXCEEDS " + maxFrameLength + " BYTES");
+        }
+    }
+}
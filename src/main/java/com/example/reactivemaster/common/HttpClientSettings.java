@@ -0,0 +1,42 @@
+package com.example.reactivemaster.common;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/*
+    Knobs for the shared HttpClient, see HttpClients.
+    HttpClientSettings.defaults().toBuilder().maxConnections(200).http2(true).build()
+ */
+@Builder(toBuilder = true)
+public record HttpClientSettings(
+        String baseUrl,
+        int maxConnections,
+        int pendingAcquireMaxCount,
+        Duration pendingAcquireTimeout,
+        Duration maxIdleTime,
+        Duration maxLifeTime,
+        Duration evictionInterval,
+        Duration connectTimeout,
+        Duration responseTimeout,
+        boolean keepAlive,
+        boolean http2,
+        boolean wiretap
+) {
+    public static HttpClientSettings defaults() {
+        return HttpClientSettings.builder()
+                .baseUrl("http://localhost:7070")
+                .maxConnections(100)
+                .pendingAcquireMaxCount(1_000)
+                .pendingAcquireTimeout(Duration.ofSeconds(5))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictionInterval(Duration.ofSeconds(30))
+                .connectTimeout(Duration.ofSeconds(2))
+                .responseTimeout(Duration.ofSeconds(5))
+                .keepAlive(true)
+                .http2(false)
+                .wiretap(false)
+                .build();
+    }
+}
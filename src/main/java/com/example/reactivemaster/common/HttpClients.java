@@ -0,0 +1,49 @@
+package com.example.reactivemaster.common;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/*
+    HttpClient.create() per call means a new client on the default connection provider every time.
+    Build the client once, on a sized pool, and reuse it: repeated calls to the same host
+    then go over already open keep-alive connections instead of paying TCP setup each time.
+ */
+public final class HttpClients {
+
+    private HttpClients() {
+    }
+
+    // lazily built from HttpClientSettings.defaults() and shared by every caller
+    public static HttpClient shared() {
+        return Shared.CLIENT;
+    }
+
+    public static HttpClient create(HttpClientSettings settings) {
+        var provider = ConnectionProvider.builder("reactive-master")
+                .maxConnections(settings.maxConnections())
+                .pendingAcquireMaxCount(settings.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(settings.pendingAcquireTimeout())
+                .maxIdleTime(settings.maxIdleTime())
+                .maxLifeTime(settings.maxLifeTime())
+                .evictInBackground(settings.evictionInterval())
+                .build();
+
+        var client = HttpClient.create(provider)
+                .baseUrl(settings.baseUrl())
+                .keepAlive(settings.keepAlive())
+                .responseTimeout(settings.responseTimeout())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.connectTimeout().toMillis())
+                .wiretap(settings.wiretap());
+
+        // h2c first, falling back to HTTP/1.1 when the server doesn't upgrade
+        return settings.http2()
+                ? client.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+                : client.protocol(HttpProtocol.HTTP11);
+    }
+
+    private static final class Shared {
+        private static final HttpClient CLIENT = create(HttpClientSettings.defaults());
+    }
+}
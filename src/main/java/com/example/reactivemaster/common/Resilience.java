@@ -0,0 +1,196 @@
+package com.example.reactivemaster.common;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    timeout + hedging + retry for one kind of remote call, meant to be shared by all calls to the same backend:
+
+        productName(id).transform(resilience::apply)
+
+    - every successful attempt's latency goes into a rolling window;
+    - if the attempt is still running after the window's p95, a second identical request is fired
+      and the first one to SUCCEED wins (the other is cancelled): a fast error from one of them
+      doesn't cancel the other, the attempt only fails once both have;
+    - each attempt times out after p99 * 3 (clamped), not a fixed guess;
+    - failed attempts are retried up to maxRetries, after retryBackoff doubled on every retry, +-50% jitter.
+
+    Hedges and retries both spend tokens from a RetryBudget that calls refill by `budgetRatio` each,
+    so extra load is capped at ~10% of the traffic: when the backend degrades and everything fails,
+    the budget runs dry and calls fail fast instead of tripling the load on it.
+ */
+@Slf4j
+public final class Resilience {
+    private final ResilienceSettings settings;
+    private final LatencyWindow latencies;
+    private final RetryBudget budget;
+
+    public Resilience(ResilienceSettings settings) {
+        this.settings = settings;
+        this.latencies = new LatencyWindow(settings.windowSize());
+        this.budget = new RetryBudget(settings.budgetRatio(), settings.budgetCapacity());
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return Mono.defer(() -> {
+            budget.deposit();
+            return hedged(call)
+                    .retryWhen(Retry.from(signals -> signals.concatMap(signal ->
+                            signal.totalRetries() < settings.maxRetries() && budget.tryWithdraw()
+                                    ? Mono.delay(backoff(signal.totalRetries())).thenReturn(signal)
+                                    : Mono.error(signal.failure()))));
+        });
+    }
+
+    // retryBackoff * 2^retry, randomly between half and one and a half of it so failed callers don't retry in lockstep
+    private Duration backoff(long retry) {
+        var nanos = settings.retryBackoff().toNanos() << Math.min(retry, 16);
+        return Duration.ofNanos((long) (nanos * ThreadLocalRandom.current().nextDouble(0.5, 1.5)));
+    }
+
+    // one attempt: the call, plus its hedge once it's slower than usual, under the adaptive timeout
+    private <T> Mono<T> hedged(Mono<T> call) {
+        return Mono.defer(() -> {
+            var timeout = timeout();
+            var primary = timed(call);
+            if(latencies.size() < Math.max(1, settings.minSamples())) // an empty window would hedge right away
+                return primary.timeout(timeout);
+
+            // a primary ending without a value before the hedge is due ends the attempt right away, no hedge
+            var primaryEnded = Sinks.empty();
+            var failure = new AtomicReference<Throwable>(); // the primary's error, else the hedge's
+            var hedge = Mono.delay(hedgeDelay())
+                    .takeUntilOther(primaryEnded.asMono())
+                    .flatMap(tick -> {
+                        if(!budget.tryWithdraw()) return Mono.<T>empty();
+                        log.debug("HEDGING AFTER {}", hedgeDelay());
+                        return timed(call).doOnError(e -> failure.compareAndSet(null, e));
+                    });
+            var first = primary
+                    .doOnError(failure::set)
+                    .doOnTerminate(primaryEnded::tryEmitEmpty);
+            // no attempt gave a value: firstWithValue's NoSuchElementException becomes the real error, or empty
+            return Mono.firstWithValue(first, hedge)
+                    .onErrorResume(NoSuchElementException.class, allFailed -> failure.get() == null
+                            ? Mono.<T>empty()
+                            : Mono.error(failure.get()))
+                    .timeout(timeout);
+        });
+    }
+
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return call.doOnSuccess(value -> latencies.record(System.nanoTime() - start));
+        });
+    }
+
+    public Duration hedgeDelay() {
+        return Duration.ofNanos(latencies.percentile(settings.hedgePercentile()));
+    }
+
+    public Duration timeout() {
+        if(latencies.size() < settings.minSamples()) return settings.maxTimeout();
+        var nanos = (long) (latencies.percentile(settings.timeoutPercentile()) * settings.timeoutMultiplier());
+        var timeout = Duration.ofNanos(nanos);
+        if(timeout.compareTo(settings.minTimeout()) < 0) return settings.minTimeout();
+        if(timeout.compareTo(settings.maxTimeout()) > 0) return settings.maxTimeout();
+        return timeout;
+    }
+
+    public RetryBudget budget() {
+        return budget;
+    }
+
+    /*
+        Ring of the last `capacity` latencies. Percentiles sort a copy, recomputed at most every
+        REFRESH_EVERY samples: calls read them twice per attempt, and a few samples don't move a p95.
+        While the window is filling up every new sample does move it, so the copy is redone on each read.
+     */
+    static final class LatencyWindow {
+        private static final int REFRESH_EVERY = 16;
+
+        private final AtomicLongArray samples;
+        private final AtomicLong recorded = new AtomicLong();
+        private volatile long[] sorted = new long[0];
+        private volatile long sortedAt = -REFRESH_EVERY;
+
+        LatencyWindow(int capacity) {
+            if(capacity <= 0) throw new IllegalArgumentException("WINDOW SIZE MUST BE > 0");
+            this.samples = new AtomicLongArray(capacity);
+        }
+
+        void record(long nanos) {
+            var index = recorded.getAndIncrement();
+            samples.set((int) (index % samples.length()), nanos);
+        }
+
+        int size() {
+            return (int) Math.min(recorded.get(), samples.length());
+        }
+
+        long percentile(double p) {
+            var snapshot = snapshot();
+            if(snapshot.length == 0) return 0;
+            var rank = (int) Math.ceil(p * snapshot.length) - 1;
+            return snapshot[Math.max(0, Math.min(rank, snapshot.length - 1))];
+        }
+
+        private long[] snapshot() {
+            var count = recorded.get();
+            if(count == sortedAt) return sorted;
+            if(sorted.length == samples.length() && count - sortedAt < REFRESH_EVERY) return sorted;
+            var copy = new long[size()];
+            for (int i = 0; i < copy.length; i++) copy[i] = samples.get(i);
+            Arrays.sort(copy);
+            sorted = copy;
+            sortedAt = count;
+            return copy;
+        }
+    }
+
+    /*
+        Token bucket in thousandths of a token: each call deposits `ratio`, each hedge or retry takes 1,
+        never more than `capacity` saved up. Starts full so a cold client can still retry.
+     */
+    public static final class RetryBudget {
+        private static final long SCALE = 1_000;
+
+        private final long deposit;
+        private final long capacity;
+        private final AtomicLong tokens;
+
+        RetryBudget(double ratio, int capacity) {
+            if(ratio < 0 || capacity < 0) throw new IllegalArgumentException("BUDGET RATIO AND CAPACITY MUST BE >= 0");
+            this.deposit = (long) (ratio * SCALE);
+            this.capacity = capacity * SCALE;
+            this.tokens = new AtomicLong(this.capacity);
+        }
+
+        void deposit() {
+            tokens.accumulateAndGet(deposit, (current, add) -> Math.min(capacity, current + add));
+        }
+
+        boolean tryWithdraw() {
+            while (true) {
+                var current = tokens.get();
+                if(current < SCALE) return false;
+                if(tokens.compareAndSet(current, current - SCALE)) return true;
+            }
+        }
+
+        public double tokens() {
+            return (double) tokens.get() / SCALE;
+        }
+    }
+}
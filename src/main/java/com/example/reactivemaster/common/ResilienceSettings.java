@@ -0,0 +1,40 @@
+package com.example.reactivemaster.common;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/*
+    Knobs for Resilience.
+    ResilienceSettings.defaults().toBuilder().maxRetries(3).budgetRatio(0.2).build()
+ */
+@Builder(toBuilder = true)
+public record ResilienceSettings(
+        int windowSize,            // latest successful latencies kept for the percentiles
+        int minSamples,            // below this, no hedging and the timeout is maxTimeout
+        double hedgePercentile,    // a duplicate request is sent once the first is slower than this
+        double timeoutPercentile,
+        double timeoutMultiplier,  // timeout = percentile * multiplier, clamped to [minTimeout, maxTimeout]
+        Duration minTimeout,
+        Duration maxTimeout,
+        int maxRetries,
+        Duration retryBackoff,     // delay before the first retry, doubled for each next one, +-50% jitter
+        double budgetRatio,        // tokens earned per call; a hedge or a retry spends one
+        int budgetCapacity
+) {
+    public static ResilienceSettings defaults() {
+        return ResilienceSettings.builder()
+                .windowSize(256)
+                .minSamples(20)
+                .hedgePercentile(0.95)
+                .timeoutPercentile(0.99)
+                .timeoutMultiplier(3)
+                .minTimeout(Duration.ofMillis(50))
+                .maxTimeout(Duration.ofSeconds(5))
+                .maxRetries(2)
+                .retryBackoff(Duration.ofMillis(20))
+                .budgetRatio(0.1)
+                .budgetCapacity(10)
+                .build();
+    }
+}
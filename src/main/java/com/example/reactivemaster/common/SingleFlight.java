@@ -0,0 +1,57 @@
+package com.example.reactivemaster.common;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+    Collapses concurrent lookups of the same key into one call.
+    The first caller for a key subscribes to the loader and parks the result in a Sinks.one();
+    everyone arriving while that call is in flight subscribes to the same sink
+    (like sinkOneMultipleSubs in the tests: one value, many subs).
+    The entry is removed as soon as the call terminates, so nothing is cached past that point:
+    the next lookup for the key goes to the loader again.
+
+    Note: once started, the call runs to completion even if every waiting subscriber cancels,
+    same as Mono.cache().
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, Sinks.One<V>> inFlight = new ConcurrentHashMap<>();
+
+    public Mono<V> execute(K key, Function<? super K, ? extends Mono<? extends V>> loader) {
+        return Mono.defer(() -> {
+            var fresh = Sinks.<V>one();
+            var existing = inFlight.putIfAbsent(key, fresh);
+            if(existing!=null) return existing.asMono();
+
+            Mono<? extends V> call;
+            try {
+                call = loader.apply(key);
+            } catch (RuntimeException e) {
+                inFlight.remove(key, fresh);
+                return Mono.error(e);
+            }
+            // remove first, then emit: a caller arriving after the result must start a new call
+            call.subscribe(
+                    value -> {
+                        inFlight.remove(key, fresh);
+                        fresh.tryEmitValue(value);
+                    },
+                    error -> {
+                        inFlight.remove(key, fresh);
+                        fresh.tryEmitError(error);
+                    },
+                    () -> {
+                        inFlight.remove(key, fresh);
+                        fresh.tryEmitEmpty(); // no-op if a value was already emitted
+                    });
+            return fresh.asMono();
+        });
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
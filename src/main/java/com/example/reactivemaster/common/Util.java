@@ -11,6 +11,11 @@ public class Util {
         return faker;
     }
 
+    // pre-generated, thread-safe pools with the same call shape as faker(), for per-element use
+    public static FakeData fakeData(){
+        return FakeData.instance();
+    }
+
     public static void sleep(int secs)  {
         try {
             Thread.sleep(Duration.ofSeconds(secs));
@@ -27,4 +32,14 @@ public class Util {
         return new DefaultSub<>("");
     }
 
+    // counts items/bytes instead of logging each one, for driving the demos at full speed
+    public static <T> DefaultSub<T> metricsSubscriber(String name){
+        return metricsSubscriber(name, 0);
+    }
+
+    // same as above, but still logs one item out of every `sampleEvery`
+    public static <T> DefaultSub<T> metricsSubscriber(String name, long sampleEvery){
+        return new DefaultSub<>(name, true, sampleEvery, DefaultSub::estimateSize);
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.example.reactivemaster.common;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadFactory;
+
+/*
+    Schedulers backed by virtual threads: reactor's bounded elastic thread-per-task scheduler,
+    given a virtual thread factory. Blocking inside subscribeOn (Util.sleep, JDBC, blocking HTTP...)
+    only parks a virtual thread, so tens of thousands of concurrent subscriptions don't need
+    tens of thousands of platform threads.
+    It keeps the Scheduler contract that a plain executor doesn't: the tasks of one Worker run
+    one after the other, in order, and schedule(task, delay) works (Mono.delay, timeout...).
+    At most maxConcurrency threads are busy at once; past that, new workers share the busy
+    threads and their tasks are queued, up to queuedTaskCap, then rejected.
+ */
+@Slf4j
+public final class VirtualThreadSchedulers {
+    public static final int DEFAULT_MAX_CONCURRENCY = 10_000;
+
+    // reactor's own implementations, whatever factory is installed with Schedulers.setFactory
+    private static final Schedulers.Factory DEFAULTS = new Schedulers.Factory() {
+    };
+
+    private VirtualThreadSchedulers() {
+    }
+
+    public static Scheduler newVirtual(String name) {
+        return newVirtual(name, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    // threads are named name-1, name-2, ...
+    public static Scheduler newVirtual(String name, int maxConcurrency) {
+        var scheduler = create(name, maxConcurrency, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE);
+        scheduler.init();
+        return scheduler;
+    }
+
+    /*
+        reactor-core 3.6 has no public Schedulers method for the thread-per-task scheduler, only the
+        Factory default. Taken from DEFAULTS rather than the installed factory, which calls this.
+        Not initialized: Schedulers inits what the factory returns.
+     */
+    private static Scheduler create(String name, int maxConcurrency, int queuedTaskCap) {
+        if(maxConcurrency<=0) throw new IllegalArgumentException("MAX CONCURRENCY MUST BE POSITIVE, GOT " + maxConcurrency);
+        var threadFactory = Thread.ofVirtual().name(name + "-", 1).factory();
+        return DEFAULTS.newThreadPerTaskBoundedElastic(maxConcurrency, queuedTaskCap, threadFactory);
+    }
+
+    /*
+        From now on Schedulers.boundedElastic() and Schedulers.newBoundedElastic(...) hand out
+        virtual-thread schedulers. Already cached schedulers are disposed by reactor and recreated
+        on next use, so call this before the pipelines are built.
+        The system property alternative, -Dreactor.schedulers.defaultBoundedElasticOnVirtualThreads=true,
+        only works if it is set before the Schedulers class is loaded and has no concurrency cap.
+     */
+    public static void installAsDefaultBoundedElastic(String name, int maxConcurrency) {
+        log.info("BOUNDED ELASTIC NOW RUNS ON VIRTUAL THREADS, MAX CONCURRENCY {}", maxConcurrency);
+        Schedulers.setFactory(new Schedulers.Factory() {
+            @Override
+            public Scheduler newBoundedElastic(int threadCap, int queuedTaskCap, ThreadFactory threadFactory, int ttlSeconds) {
+                return create(name, maxConcurrency, queuedTaskCap);
+            }
+
+            @Override
+            public Scheduler newThreadPerTaskBoundedElastic(int maxThreads, int maxTaskQueuedPerThread, ThreadFactory threadFactory) {
+                return create(name, maxConcurrency, maxTaskQueuedPerThread);
+            }
+        });
+    }
+
+    public static void uninstall() {
+        Schedulers.resetFactory();
+    }
+}
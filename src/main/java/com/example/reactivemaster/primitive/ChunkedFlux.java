@@ -0,0 +1,171 @@
+package com.example.reactivemaster.primitive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/*
+    IntFlux for any type: a Flux<T> carried as Object[] chunks through map/filter/flatMapIterable,
+    so every step costs one onNext and one request/drain cycle per chunk instead of per element.
+    It's buffer() done by the pipeline instead of by hand, and undone at the end:
+
+        ChunkedFlux.from(Flux.range(1, 1_000_000))
+                .map(x -> "item-" + x)
+                .filter(s -> s.endsWith("7"))
+                .toFlux()                       // one onNext per element again, only here
+
+    The elements themselves are still objects: what's saved is the signal overhead, not the boxing
+    (mapToInt gets rid of that too). Chunks are never modified once emitted, see IntFlux.
+ */
+public final class ChunkedFlux<T> {
+    public static final int CHUNK_SIZE = IntFlux.CHUNK_SIZE;
+    private static final int PUBLISH_ON_PREFETCH = 8;
+
+    private final Flux<Object[]> chunks;
+
+    private ChunkedFlux(Flux<Object[]> chunks) {
+        this.chunks = chunks;
+    }
+
+    public static <T> ChunkedFlux<T> from(Flux<? extends T> flux) {
+        return from(flux, CHUNK_SIZE);
+    }
+
+    // buffer() requests chunkSize elements at a time from `flux`, never one by one
+    public static <T> ChunkedFlux<T> from(Flux<? extends T> flux, int chunkSize) {
+        if(chunkSize <= 0) throw new IllegalArgumentException("CHUNK SIZE MUST BE > 0");
+        return new ChunkedFlux<>(flux.buffer(chunkSize, () -> new ArrayList<>(chunkSize)).map(List::toArray));
+    }
+
+    // copies `values`, changing the list afterwards doesn't change the stream
+    public static <T> ChunkedFlux<T> fromList(List<? extends T> values) {
+        var copy = values.toArray();
+        var chunkCount = (copy.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return new ChunkedFlux<>(Flux.range(0, chunkCount)
+                .map(chunk -> Arrays.copyOfRange(copy, chunk * CHUNK_SIZE, Math.min(copy.length, (chunk + 1) * CHUNK_SIZE))));
+    }
+
+    // null results are rejected, like Flux.map
+    public <R> ChunkedFlux<R> map(Function<? super T, ? extends R> mapper) {
+        return new ChunkedFlux<>(chunks.map(chunk -> {
+            var values = new Object[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = Objects.requireNonNull(mapper.apply(element(chunk, i)), "THE MAPPER RETURNED A NULL VALUE");
+            }
+            return values;
+        }));
+    }
+
+    // null results are dropped, like Flux.mapNotNull
+    public <R> ChunkedFlux<R> mapNotNull(Function<? super T, ? extends R> mapper) {
+        return new ChunkedFlux<>(chunks.handle((chunk, sink) -> {
+            var values = new Object[chunk.length];
+            var kept = 0;
+            for (int i = 0; i < chunk.length; i++) {
+                var value = mapper.apply(element(chunk, i));
+                if(value != null) values[kept++] = value;
+            }
+            emit(values, kept, sink::next);
+        }));
+    }
+
+    // chunks left empty are not emitted
+    public ChunkedFlux<T> filter(Predicate<? super T> predicate) {
+        return new ChunkedFlux<>(chunks.handle((chunk, sink) -> {
+            var values = new Object[chunk.length];
+            var kept = 0;
+            for (int i = 0; i < chunk.length; i++) {
+                T value = element(chunk, i);
+                if(predicate.test(value)) values[kept++] = value;
+            }
+            emit(values, kept, sink::next);
+        }));
+    }
+
+    /*
+        Synchronous flatMap: every element's iterable is expanded into the same output chunk,
+        so a chunk in gives (at most) one chunk out, however many elements each one turns into.
+     */
+    public <R> ChunkedFlux<R> flatMapIterable(Function<? super T, ? extends Iterable<? extends R>> mapper) {
+        return new ChunkedFlux<>(chunks.handle((chunk, sink) -> {
+            var values = new ArrayList<>(chunk.length);
+            for (int i = 0; i < chunk.length; i++) {
+                for (var value : mapper.apply(element(chunk, i))) {
+                    values.add(Objects.requireNonNull(value, "THE ITERABLE CONTAINED A NULL VALUE"));
+                }
+            }
+            if(!values.isEmpty()) sink.next(values.toArray());
+        }));
+    }
+
+    /*
+        The thread hop is where chunks pay off most: one queue offer/poll and one wake-up per chunk.
+        Prefetches 8 chunks rather than publishOn's 256 signals, so about as many elements in flight.
+     */
+    public ChunkedFlux<T> publishOn(Scheduler scheduler) {
+        return new ChunkedFlux<>(chunks.publishOn(scheduler, PUBLISH_ON_PREFETCH));
+    }
+
+    public IntFlux mapToInt(ToIntFunction<? super T> mapper) {
+        return IntFlux.fromChunks(chunks.map(chunk -> {
+            var values = new int[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = mapper.applyAsInt(element(chunk, i));
+            }
+            return values;
+        }));
+    }
+
+    public <R> Mono<R> reduce(R identity, BiFunction<R, ? super T, R> accumulator) {
+        return Mono.defer(() -> {
+            var result = new Object[]{identity};
+            return chunks.doOnNext(chunk -> {
+                R acc = element(result, 0);
+                for (int i = 0; i < chunk.length; i++) {
+                    acc = accumulator.apply(acc, element(chunk, i));
+                }
+                result[0] = acc;
+            }).then(Mono.fromSupplier(() -> element(result, 0)));
+        });
+    }
+
+    public Mono<Long> count() {
+        return chunks.reduce(0L, (count, chunk) -> count + chunk.length);
+    }
+
+    // read-only views of the chunks, for code that wants to work a chunk at a time itself
+    public Flux<List<T>> chunks() {
+        return chunks.map(chunk -> Collections.unmodifiableList(ChunkedFlux.<T>asList(chunk)));
+    }
+
+    // unchunks: one onNext per element from here on
+    public Flux<T> toFlux() {
+        return chunks.concatMapIterable(ChunkedFlux::asList);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T element(Object[] chunk, int index) {
+        return (T) chunk[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(Object[] chunk) {
+        return (List<T>) Arrays.asList(chunk);
+    }
+
+    private static void emit(Object[] values, int kept, Consumer<Object[]> next) {
+        if(kept == values.length) next.accept(values);
+        else if(kept > 0) next.accept(Arrays.copyOf(values, kept));
+    }
+}
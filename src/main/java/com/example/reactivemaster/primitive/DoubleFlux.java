@@ -0,0 +1,127 @@
+package com.example.reactivemaster.primitive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+/*
+    IntFlux for doubles: double[] chunks instead of one boxed Double per value, same operators.
+    Chunks are never modified once emitted, see IntFlux.
+ */
+public final class DoubleFlux {
+    public static final int CHUNK_SIZE = 256;
+
+    private final Flux<double[]> chunks;
+
+    private DoubleFlux(Flux<double[]> chunks) {
+        this.chunks = chunks;
+    }
+
+    public static DoubleFlux fromChunks(Flux<double[]> chunks) {
+        return new DoubleFlux(chunks);
+    }
+
+    // copies `values` into chunks right away: changing the array afterwards doesn't change the stream
+    public static DoubleFlux fromArray(double... values) {
+        var chunks = new double[(values.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = Arrays.copyOfRange(values, chunk * CHUNK_SIZE, Math.min(values.length, (chunk + 1) * CHUNK_SIZE));
+        }
+        return new DoubleFlux(Flux.fromArray(chunks));
+    }
+
+    // the way in from boxed pipelines: buffers CHUNK_SIZE Doubles into one double[]
+    public static DoubleFlux from(Flux<Double> flux) {
+        return new DoubleFlux(flux.buffer(CHUNK_SIZE).map(list -> {
+            var values = new double[list.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = list.get(i);
+            }
+            return values;
+        }));
+    }
+
+    public DoubleFlux map(DoubleUnaryOperator mapper) {
+        return new DoubleFlux(chunks.map(chunk -> {
+            var values = new double[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = mapper.applyAsDouble(chunk[i]);
+            }
+            return values;
+        }));
+    }
+
+    // chunks left empty are not emitted
+    public DoubleFlux filter(DoublePredicate predicate) {
+        return new DoubleFlux(chunks.handle((chunk, sink) -> {
+            var values = new double[chunk.length];
+            var kept = 0;
+            for (var value : chunk) {
+                if(predicate.test(value)) values[kept++] = value;
+            }
+            if(kept == values.length) sink.next(values);
+            else if(kept > 0) sink.next(Arrays.copyOf(values, kept));
+        }));
+    }
+
+    public Mono<Double> reduce(double identity, DoubleBinaryOperator accumulator) {
+        return Mono.defer(() -> {
+            var result = new double[]{identity};
+            return chunks.doOnNext(chunk -> {
+                for (var value : chunk) {
+                    result[0] = accumulator.applyAsDouble(result[0], value);
+                }
+            }).then(Mono.fromSupplier(() -> result[0]));
+        });
+    }
+
+    public Mono<Double> sum() {
+        return Mono.defer(() -> {
+            var sum = new double[1];
+            return chunks.doOnNext(chunk -> {
+                for (var value : chunk) {
+                    sum[0] += value;
+                }
+            }).then(Mono.fromSupplier(() -> sum[0]));
+        });
+    }
+
+    public Mono<Long> count() {
+        return chunks.reduce(0L, (count, chunk) -> count + chunk.length);
+    }
+
+    // consecutive windows of exactly `size` values, the last one may be shorter
+    public Flux<double[]> window(int size) {
+        if(size <= 0) throw new IllegalArgumentException("WINDOW SIZE MUST BE > 0");
+        return Flux.defer(() -> {
+            var window = new double[size];
+            var filled = new int[1];
+            return chunks.concatMapIterable(chunk -> {
+                List<double[]> full = new ArrayList<>();
+                for (var value : chunk) {
+                    window[filled[0]++] = value;
+                    if(filled[0] == size) {
+                        full.add(window.clone());
+                        filled[0] = 0;
+                    }
+                }
+                return full;
+            }).concatWith(Mono.fromSupplier(() -> Arrays.copyOf(window, filled[0])).filter(rest -> rest.length > 0));
+        });
+    }
+
+    public Flux<double[]> chunks() {
+        return chunks;
+    }
+
+    // boxes again, one Double per value
+    public Flux<Double> toFlux() {
+        return chunks.concatMapIterable(chunk -> () -> Arrays.stream(chunk).iterator());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.reactivemaster.primitive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/*
+    A stream of ints that travels as int[] chunks: one onNext, and one array, per CHUNK_SIZE values
+    instead of one boxed Integer per value. map/filter/reduce loop over the arrays; boxing only
+    happens if you go back to a Flux<Integer> with toFlux().
+
+        IntFlux.range(1, 1_000_000).map(x -> x * 2).filter(x -> x % 3 == 0).sum()
+
+    Chunks are never modified once emitted: every step that changes values writes a new array,
+    so the same IntFlux can be subscribed to many times, like any Flux.
+ */
+public final class IntFlux {
+    public static final int CHUNK_SIZE = 256;
+
+    private final Flux<int[]> chunks;
+
+    private IntFlux(Flux<int[]> chunks) {
+        this.chunks = chunks;
+    }
+
+    public static IntFlux fromChunks(Flux<int[]> chunks) {
+        return new IntFlux(chunks);
+    }
+
+    public static IntFlux range(int start, int count) {
+        if(count < 0) throw new IllegalArgumentException("COUNT MUST BE >= 0");
+        var chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return new IntFlux(Flux.range(0, chunkCount).map(chunk -> {
+            var from = chunk * CHUNK_SIZE;
+            var values = new int[Math.min(CHUNK_SIZE, count - from)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = start + from + i;
+            }
+            return values;
+        }));
+    }
+
+    // copies `values` into chunks right away: changing the array afterwards doesn't change the stream
+    public static IntFlux fromArray(int... values) {
+        var chunks = new int[(values.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = Arrays.copyOfRange(values, chunk * CHUNK_SIZE, Math.min(values.length, (chunk + 1) * CHUNK_SIZE));
+        }
+        return new IntFlux(Flux.fromArray(chunks));
+    }
+
+    // the way in from boxed pipelines: buffers CHUNK_SIZE Integers into one int[]
+    public static IntFlux from(Flux<Integer> flux) {
+        return new IntFlux(flux.buffer(CHUNK_SIZE).map(list -> {
+            var values = new int[list.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = list.get(i);
+            }
+            return values;
+        }));
+    }
+
+    public IntFlux map(IntUnaryOperator mapper) {
+        return new IntFlux(chunks.map(chunk -> {
+            var values = new int[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = mapper.applyAsInt(chunk[i]);
+            }
+            return values;
+        }));
+    }
+
+    public LongFlux mapToLong(IntToLongFunction mapper) {
+        return LongFlux.fromChunks(chunks.map(chunk -> {
+            var values = new long[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = mapper.applyAsLong(chunk[i]);
+            }
+            return values;
+        }));
+    }
+
+    public DoubleFlux mapToDouble(IntToDoubleFunction mapper) {
+        return DoubleFlux.fromChunks(chunks.map(chunk -> {
+            var values = new double[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = mapper.applyAsDouble(chunk[i]);
+            }
+            return values;
+        }));
+    }
+
+    // chunks left empty are not emitted
+    public IntFlux filter(IntPredicate predicate) {
+        return new IntFlux(chunks.handle((chunk, sink) -> {
+            var values = new int[chunk.length];
+            var kept = 0;
+            for (var value : chunk) {
+                if(predicate.test(value)) values[kept++] = value;
+            }
+            if(kept == values.length) sink.next(values);
+            else if(kept > 0) sink.next(Arrays.copyOf(values, kept));
+        }));
+    }
+
+    public Mono<Integer> reduce(int identity, IntBinaryOperator accumulator) {
+        return Mono.defer(() -> {
+            var result = new int[]{identity};
+            return chunks.doOnNext(chunk -> {
+                for (var value : chunk) {
+                    result[0] = accumulator.applyAsInt(result[0], value);
+                }
+            }).then(Mono.fromSupplier(() -> result[0]));
+        });
+    }
+
+    // as a long: summing ints overflows an int quickly
+    public Mono<Long> sum() {
+        return Mono.defer(() -> {
+            var sum = new long[1];
+            return chunks.doOnNext(chunk -> {
+                for (var value : chunk) {
+                    sum[0] += value;
+                }
+            }).then(Mono.fromSupplier(() -> sum[0]));
+        });
+    }
+
+    public Mono<Long> count() {
+        return chunks.reduce(0L, (count, chunk) -> count + chunk.length);
+    }
+
+    // consecutive windows of exactly `size` values, the last one may be shorter
+    public Flux<int[]> window(int size) {
+        if(size <= 0) throw new IllegalArgumentException("WINDOW SIZE MUST BE > 0");
+        return Flux.defer(() -> {
+            var window = new int[size];
+            var filled = new int[1];
+            return chunks.concatMapIterable(chunk -> {
+                List<int[]> full = new ArrayList<>();
+                for (var value : chunk) {
+                    window[filled[0]++] = value;
+                    if(filled[0] == size) {
+                        full.add(window.clone());
+                        filled[0] = 0;
+                    }
+                }
+                return full;
+            }).concatWith(Mono.fromSupplier(() -> Arrays.copyOf(window, filled[0])).filter(rest -> rest.length > 0));
+        });
+    }
+
+    public Flux<int[]> chunks() {
+        return chunks;
+    }
+
+    // boxes again, one Integer per value
+    public Flux<Integer> toFlux() {
+        return chunks.concatMapIterable(chunk -> () -> Arrays.stream(chunk).iterator());
+    }
+}
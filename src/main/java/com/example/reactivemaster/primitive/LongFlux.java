@@ -0,0 +1,151 @@
+package com.example.reactivemaster.primitive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+
+/*
+    IntFlux for longs: long[] chunks instead of one boxed Long per value, same operators.
+    Chunks are never modified once emitted, see IntFlux.
+ */
+public final class LongFlux {
+    public static final int CHUNK_SIZE = 256;
+
+    private final Flux<long[]> chunks;
+
+    private LongFlux(Flux<long[]> chunks) {
+        this.chunks = chunks;
+    }
+
+    public static LongFlux fromChunks(Flux<long[]> chunks) {
+        return new LongFlux(chunks);
+    }
+
+    public static LongFlux range(long start, int count) {
+        if(count < 0) throw new IllegalArgumentException("COUNT MUST BE >= 0");
+        var chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return new LongFlux(Flux.range(0, chunkCount).map(chunk -> {
+            var from = chunk * CHUNK_SIZE;
+            var values = new long[Math.min(CHUNK_SIZE, count - from)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = start + from + i;
+            }
+            return values;
+        }));
+    }
+
+    // copies `values` into chunks right away: changing the array afterwards doesn't change the stream
+    public static LongFlux fromArray(long... values) {
+        var chunks = new long[(values.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = Arrays.copyOfRange(values, chunk * CHUNK_SIZE, Math.min(values.length, (chunk + 1) * CHUNK_SIZE));
+        }
+        return new LongFlux(Flux.fromArray(chunks));
+    }
+
+    // the way in from boxed pipelines: buffers CHUNK_SIZE Longs into one long[]
+    public static LongFlux from(Flux<Long> flux) {
+        return new LongFlux(flux.buffer(CHUNK_SIZE).map(list -> {
+            var values = new long[list.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = list.get(i);
+            }
+            return values;
+        }));
+    }
+
+    public LongFlux map(LongUnaryOperator mapper) {
+        return new LongFlux(chunks.map(chunk -> {
+            var values = new long[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = mapper.applyAsLong(chunk[i]);
+            }
+            return values;
+        }));
+    }
+
+    public DoubleFlux mapToDouble(LongToDoubleFunction mapper) {
+        return DoubleFlux.fromChunks(chunks.map(chunk -> {
+            var values = new double[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                values[i] = mapper.applyAsDouble(chunk[i]);
+            }
+            return values;
+        }));
+    }
+
+    // chunks left empty are not emitted
+    public LongFlux filter(LongPredicate predicate) {
+        return new LongFlux(chunks.handle((chunk, sink) -> {
+            var values = new long[chunk.length];
+            var kept = 0;
+            for (var value : chunk) {
+                if(predicate.test(value)) values[kept++] = value;
+            }
+            if(kept == values.length) sink.next(values);
+            else if(kept > 0) sink.next(Arrays.copyOf(values, kept));
+        }));
+    }
+
+    public Mono<Long> reduce(long identity, LongBinaryOperator accumulator) {
+        return Mono.defer(() -> {
+            var result = new long[]{identity};
+            return chunks.doOnNext(chunk -> {
+                for (var value : chunk) {
+                    result[0] = accumulator.applyAsLong(result[0], value);
+                }
+            }).then(Mono.fromSupplier(() -> result[0]));
+        });
+    }
+
+    public Mono<Long> sum() {
+        return Mono.defer(() -> {
+            var sum = new long[1];
+            return chunks.doOnNext(chunk -> {
+                for (var value : chunk) {
+                    sum[0] += value;
+                }
+            }).then(Mono.fromSupplier(() -> sum[0]));
+        });
+    }
+
+    public Mono<Long> count() {
+        return chunks.reduce(0L, (count, chunk) -> count + chunk.length);
+    }
+
+    // consecutive windows of exactly `size` values, the last one may be shorter
+    public Flux<long[]> window(int size) {
+        if(size <= 0) throw new IllegalArgumentException("WINDOW SIZE MUST BE > 0");
+        return Flux.defer(() -> {
+            var window = new long[size];
+            var filled = new int[1];
+            return chunks.concatMapIterable(chunk -> {
+                List<long[]> full = new ArrayList<>();
+                for (var value : chunk) {
+                    window[filled[0]++] = value;
+                    if(filled[0] == size) {
+                        full.add(window.clone());
+                        filled[0] = 0;
+                    }
+                }
+                return full;
+            }).concatWith(Mono.fromSupplier(() -> Arrays.copyOf(window, filled[0])).filter(rest -> rest.length > 0));
+        });
+    }
+
+    public Flux<long[]> chunks() {
+        return chunks;
+    }
+
+    // boxes again, one Long per value
+    public Flux<Long> toFlux() {
+        return chunks.concatMapIterable(chunk -> () -> Arrays.stream(chunk).iterator());
+    }
+}
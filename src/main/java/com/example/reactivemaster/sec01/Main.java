@@ -2,29 +2,35 @@ package com.example.reactivemaster.sec01;
 
 import com.example.reactivemaster.common.Util;
 import com.example.reactivemaster.sec01.publisher.PublisherImpl;
+import com.example.reactivemaster.sec01.subscriber.PrefetchSubscriberImpl;
 import com.example.reactivemaster.sec01.subscriber.SubscriberImpl;
-import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 
 public class Main {
     public static void main(String[] args) throws InterruptedException {
         demo2();
     }
     public static void demo1(){
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
 
     }
 
     public static void demo2() throws InterruptedException {
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
         subscriber.getSubscription().request(11);
+
+        /*
+            Asking for more than the 10 available items is not an error,
+            the subscriber gets all 10 of them and then COMPLETED
+         */
     }
 
     public static void demo3() throws InterruptedException {
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
         subscriber.getSubscription().request(3);
@@ -38,7 +44,7 @@ public class Main {
     }
 
     public static void demo4() throws InterruptedException {
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
         subscriber.getSubscription().request(3);
@@ -51,4 +57,21 @@ public class Main {
         subscriber.getSubscription().request(3);
         Util.sleep(2);
     }
+
+    public static void demo5() {
+        // millions of cheap items through the hand-rolled publisher, reactor only counts them
+        var count = Flux.from(PublisherImpl.range(1, 5_000_000))
+                .limitRate(256)
+                .count()
+                .block();
+        System.out.println("RECEIVED " + count + " ITEMS");
+    }
+
+    public static void demo6() {
+        // 1M items with ~5K request(n) calls instead of 1M
+        var sum = new long[1];
+        var subscriber = new PrefetchSubscriberImpl<Integer>(256, x -> sum[0] += x);
+        PublisherImpl.range(1, 1_000_000).subscribe(subscriber);
+        System.out.println("SUM: " + sum[0]);
+    }
 }
@@ -1,13 +1,100 @@
 package com.example.reactivemaster.sec01.publisher;
 
-import com.example.reactivemaster.sec01.subscriber.SubscriberImpl;
+import com.example.reactivemaster.common.Util;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 
-public class PublisherImpl implements Publisher<String> {
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.Supplier;
+
+public class PublisherImpl<T> implements Publisher<T> {
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+    private static final long DEFAULT_MAX_ITEMS = 10;
+
+    // called once per subscription, so every subscriber walks its own source
+    private final Supplier<? extends Iterator<? extends T>> source;
+    private final long maxItems;
+
+    public PublisherImpl(Supplier<? extends Iterator<? extends T>> source, long maxItems) {
+        if(maxItems<0) throw new IllegalArgumentException("MAX ITEMS MUST NOT BE NEGATIVE, GOT " + maxItems);
+        this.source = source;
+        this.maxItems = maxItems;
+    }
+
+    // the original demo publisher: 10 fake email addresses
+    public static PublisherImpl<String> emails() {
+        return generate(() -> Util.fakeData().internet().emailAddress(), DEFAULT_MAX_ITEMS);
+    }
+
+    public static <T> PublisherImpl<T> fromIterable(Iterable<? extends T> iterable) {
+        return new PublisherImpl<>(iterable::iterator, UNBOUNDED);
+    }
+
+    public static <T> PublisherImpl<T> fromIterator(Supplier<? extends Iterator<? extends T>> iterator, long maxItems) {
+        return new PublisherImpl<>(iterator, maxItems);
+    }
+
+    public static <T> PublisherImpl<T> generate(Supplier<? extends T> supplier, long maxItems) {
+        return new PublisherImpl<>(() -> new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public T next() {
+                return supplier.get();
+            }
+        }, maxItems);
+    }
+
+    // start, start+1, ... start+count-1 without materializing the values up front
+    public static PublisherImpl<Integer> range(int start, int count) {
+        if(count<0) throw new IllegalArgumentException("COUNT MUST NOT BE NEGATIVE, GOT " + count);
+        return new PublisherImpl<>(() -> new PrimitiveIterator.OfInt() {
+            private int next = start;
+            private int remaining = count;
+
+            @Override
+            public boolean hasNext() {
+                return remaining>0;
+            }
+
+            @Override
+            public int nextInt() {
+                if(remaining==0) throw new NoSuchElementException();
+                remaining--;
+                return next++;
+            }
+        }, count);
+    }
+
+    // surfaces a broken source through onError on the first request instead of throwing from subscribe
+    private static <T> Iterator<T> failing(RuntimeException e) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                throw e;
+            }
+
+            @Override
+            public T next() {
+                throw e;
+            }
+        };
+    }
+
     @Override
-    public void subscribe(Subscriber<? super String> subscriber) {
-        var subscription = new SubscriptionImpl(subscriber);
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Iterator<? extends T> iterator;
+        try {
+            iterator = source.get();
+        } catch (RuntimeException e) {
+            iterator = failing(e);
+        }
+        var subscription = new SubscriptionImpl<T>(subscriber, iterator, maxItems);
         subscriber.onSubscribe(subscription);
     }
 }
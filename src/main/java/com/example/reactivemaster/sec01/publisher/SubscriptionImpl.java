@@ -1,39 +1,42 @@
 package com.example.reactivemaster.sec01.publisher;
 
-import com.example.reactivemaster.common.Util;
 import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Slf4j
-public class SubscriptionImpl implements Subscription {
-    private Subscriber<? super String> subscriber;
-    private int count;
-    private static final long MAX_ITEMS = 10;
-    private boolean isCancelled;
+public class SubscriptionImpl<T> implements Subscription {
+    private final Subscriber<? super T> subscriber;
+    private final Iterator<? extends T> source;
+    private final long maxItems;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private long count; // only touched by the thread that owns the drain loop
+    private volatile Throwable error;
+    private volatile boolean isCancelled;
 
-    public SubscriptionImpl(Subscriber<? super String> subscriber) {
+    public SubscriptionImpl(Subscriber<? super T> subscriber, Iterator<? extends T> source, long maxItems) {
         this.subscriber = subscriber;
+        this.source = source;
+        this.maxItems = maxItems;
     }
 
     @Override
     public void request(long requests) {
-        log.info("SUBSCRIBER REQUESTED {} ITEMS", requests);
+        log.debug("SUBSCRIBER REQUESTED {} ITEMS", requests);
         if(isCancelled) return;
-        if(requests>MAX_ITEMS) {
-            subscriber.onError(new IllegalArgumentException("MAX ITEMS REACHED"));
-            isCancelled = true;
-            return;
-        }
-        for(int i=0; i<requests && count<MAX_ITEMS; i++) {
-            subscriber.onNext(Util.faker().internet().emailAddress());
-            count++;
-        }
-        if(count==MAX_ITEMS) {
-            log.info("NO MORE DATA TO PRODUCE");
-            subscriber.onComplete();
-            isCancelled = true;
+        if(requests<=0) {
+            // rule 3.9: non-positive requests must be signalled as IllegalArgumentException
+            error = new IllegalArgumentException("REQUEST MUST BE POSITIVE, GOT " + requests);
+        } else {
+            // asking for more than what's left is fine, the drain loop stops at maxItems anyway
+            addCap(requested, requests);
         }
+        drain();
     }
 
     @Override
@@ -41,4 +44,60 @@ public class SubscriptionImpl implements Subscription {
         log.info("SUBSCRIBER HAS CANCELLED");
         isCancelled = true;
     }
+
+    /*
+        Whoever moves wip from 0 to 1 owns the loop and emits on behalf of every other caller.
+        A request(n) coming from onNext (same thread) or from another thread only bumps
+        requested/wip and returns, so the stack never grows and onNext is never called concurrently.
+     */
+    private void drain() {
+        if(wip.getAndIncrement()!=0) return;
+        int missed = 1;
+        for(;;) {
+            long r = requested.get();
+            long e = 0;
+            boolean done = false;
+            try {
+                while(e!=r && count<maxItems && source.hasNext()) {
+                    if(isCancelled) return;
+                    if(error!=null) break;
+                    subscriber.onNext(source.next());
+                    count++;
+                    e++;
+                }
+                done = count==maxItems || !source.hasNext();
+            } catch (RuntimeException ex) {
+                // a failing source (or a throwing onNext) ends the stream with onError
+                error = ex;
+            }
+            if(isCancelled) return;
+            if(error!=null) {
+                isCancelled = true;
+                subscriber.onError(error);
+                return;
+            }
+            if(done) {
+                log.info("NO MORE DATA TO PRODUCE");
+                isCancelled = true;
+                subscriber.onComplete();
+                return;
+            }
+            if(e!=0 && r!=Long.MAX_VALUE) {
+                requested.addAndGet(-e);
+            }
+            missed = wip.addAndGet(-missed);
+            if(missed==0) return;
+        }
+    }
+
+    // adds n to the current demand, capping at Long.MAX_VALUE (treated as unbounded)
+    static long addCap(AtomicLong requested, long n) {
+        for(;;) {
+            long current = requested.get();
+            if(current==Long.MAX_VALUE) return Long.MAX_VALUE;
+            long next = current + n;
+            if(next<0) next = Long.MAX_VALUE;
+            if(requested.compareAndSet(current, next)) return current;
+        }
+    }
 }
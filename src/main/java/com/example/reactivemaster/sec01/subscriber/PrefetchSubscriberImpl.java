@@ -0,0 +1,67 @@
+package com.example.reactivemaster.sec01.subscriber;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.function.Consumer;
+
+/*
+    Requests `prefetch` items up front and tops the window up again once 75% of it
+    has been consumed, so the publisher sees a handful of request(n) calls per batch
+    instead of one per item.
+ */
+@Slf4j
+@Getter
+public class PrefetchSubscriberImpl<T> implements Subscriber<T> {
+    private final int prefetch;
+    private final int limit;
+    private final Consumer<? super T> consumer;
+    private Subscription subscription;
+    private int consumed; // onNext is serialized, no need for atomics
+    private long received;
+
+    public PrefetchSubscriberImpl(int prefetch, Consumer<? super T> consumer) {
+        if(prefetch<=0) throw new IllegalArgumentException("PREFETCH MUST BE POSITIVE, GOT " + prefetch);
+        this.prefetch = prefetch;
+        this.limit = prefetch==Integer.MAX_VALUE ? Integer.MAX_VALUE : prefetch - (prefetch >> 2);
+        this.consumer = consumer;
+    }
+
+    public PrefetchSubscriberImpl(Consumer<? super T> consumer) {
+        this(256, consumer);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(prefetch==Integer.MAX_VALUE ? Long.MAX_VALUE : prefetch);
+    }
+
+    @Override
+    public void onNext(T item) {
+        received++;
+        try {
+            consumer.accept(item);
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            onError(e);
+            return;
+        }
+        if(limit!=Integer.MAX_VALUE && ++consumed==limit) {
+            consumed = 0;
+            subscription.request(limit);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.error("ERROR AFTER {} ITEMS: {}", received, throwable.getMessage());
+    }
+
+    @Override
+    public void onComplete() {
+        log.info("COMPLETED AFTER {} ITEMS", received);
+    }
+}
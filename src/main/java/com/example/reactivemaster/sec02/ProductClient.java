@@ -0,0 +1,101 @@
+package com.example.reactivemaster.sec02;
+
+import com.example.reactivemaster.common.BatchLoader;
+import com.example.reactivemaster.common.HttpClients;
+import com.example.reactivemaster.common.Resilience;
+import com.example.reactivemaster.common.ResilienceSettings;
+import com.example.reactivemaster.common.SingleFlight;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+    Product lookups against the demo product service (localhost:7070 by default).
+    Concurrent lookups of the same product id share one in-flight request.
+ */
+@Slf4j
+public class ProductClient {
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final Duration MAX_BATCH_DELAY = Duration.ofMillis(5);
+
+    private final HttpClient client;
+    private final Resilience resilience;
+    private final SingleFlight<Integer, String> productNames = new SingleFlight<>();
+    private final BatchLoader<Integer, String> batchedProductNames =
+            new BatchLoader<>(this::getProductNames, MAX_BATCH_SIZE, MAX_BATCH_DELAY);
+
+    public ProductClient() {
+        this(HttpClients.shared());
+    }
+
+    public ProductClient(HttpClient client) {
+        this(client, ResilienceSettings.defaults());
+    }
+
+    public ProductClient(HttpClient client, ResilienceSettings resilience) {
+        this.client = client;
+        this.resilience = new Resilience(resilience);
+    }
+
+    // hedged, timed out and retried per Resilience, shared by everyone waiting on the same id
+    public Mono<String> getProductName(int productId) {
+        return productNames.execute(productId, id -> fetchProductName(id).transform(resilience::apply));
+    }
+
+    /*
+        The body as a retained ByteBuf: no String copy, no decoding, for callers that only forward it.
+        Whoever subscribes owns the buffer and must release() it, e.g. through ByteBufs.using(...).
+     */
+    public Mono<ByteBuf> getProductNameBytes(int productId) {
+        return client.get()
+                .uri("/demo/01/product/" + productId)
+                .responseSingle((response, body) -> response.status().code() >= 400
+                        ? Mono.error(new IllegalStateException("PRODUCT " + productId + " LOOKUP FAILED: " + response.status()))
+                        : body.retain());
+    }
+
+    /*
+        Same answer as getProductName, but calls made within a few millis of each other
+        are folded into one bulk request (up to 100 ids) instead of one GET per id.
+     */
+    public Mono<String> getProductNameBatched(int productId) {
+        return batchedProductNames.load(productId);
+    }
+
+    // GET /demo/01/products?ids=1,2,3 answers one "id,name" line per known product
+    public Mono<Map<Integer, String>> getProductNames(Collection<Integer> productIds) {
+        var ids = productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        log.debug("FETCHING PRODUCTS {}", ids);
+        return client.get()
+                .uri("/demo/01/products?ids=" + ids)
+                .responseSingle((response, body) -> response.status().code() >= 400
+                        ? Mono.error(new IllegalStateException("PRODUCTS " + ids + " LOOKUP FAILED: " + response.status()))
+                        : body.asString().map(ProductClient::parseProductLines).defaultIfEmpty(Map.of()));
+    }
+
+    private Mono<String> fetchProductName(int productId) {
+        log.debug("FETCHING PRODUCT {}", productId);
+        return client.get()
+                .uri("/demo/01/product/" + productId)
+                .responseSingle((response, body) -> response.status().code() >= 400
+                        ? Mono.error(new IllegalStateException("PRODUCT " + productId + " LOOKUP FAILED: " + response.status()))
+                        : body.asString());
+    }
+
+    static Map<Integer, String> parseProductLines(String body) {
+        var products = new HashMap<Integer, String>();
+        for (var line : body.split("\n")) {
+            var comma = line.indexOf(',');
+            if (comma <= 0) continue;
+            products.put(Integer.parseInt(line.substring(0, comma).trim()), line.substring(comma + 1));
+        }
+        return products;
+    }
+}
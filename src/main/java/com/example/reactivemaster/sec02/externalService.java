@@ -1,27 +1,86 @@
 package com.example.reactivemaster.sec02;
 
+import com.example.reactivemaster.common.ByteBufs;
 import com.example.reactivemaster.common.Util;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
+
+import java.nio.channels.Channels;
 
 @Slf4j
 public class externalService {
+    private static final ProductClient productClient = new ProductClient();
+    private static final ByteBuf NEWLINE = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[]{'\n'}));
+
     public static void main(String[] args) {
         demo1();
     }
 
     private static Mono<String> getProductName(){
-        return HttpClient.create()
-                .get()
-                .uri("localhost:7070/demo/01/product/2")
-                .responseContent()
-                .asString()
-                .next();
+        return productClient.getProductName(2);
+    }
+
+    private static Mono<String> getProductName(int productId){
+        return productClient.getProductName(productId);
     }
 
     private static  void demo1(){
         getProductName().subscribe(Util.subscriber());
         Util.sleep(2);
     }
+
+    private static void demo2(){
+        Flux.range(1, 100)
+                .flatMap(externalService::getProductName)
+                .subscribe(Util.subscriber());
+        Util.sleep(2);
+
+        /*
+            All 100 calls share the client's pool, so they reuse
+            a few keep-alive connections instead of opening 100 of them.
+         */
+    }
+
+    private static void demo3(){
+        for (int i = 1; i <= 500; i++) {
+            getProductName().subscribe(Util.subscriber("sub" + i));
+        }
+        Util.sleep(2);
+
+        /*
+            500 subs asking for product 2 at the same time, but only ONE request
+            goes to localhost:7070; all of them get the same answer.
+            A sub arriving after that request completed triggers a new one.
+         */
+    }
+
+    private static void demo4(){
+        Flux.range(1, 1_000)
+                .flatMap(productClient::getProductNameBatched)
+                .subscribe(Util.subscriber());
+        Util.sleep(2);
+
+        /*
+            1000 lookups, but the calls landing within the same few millis are
+            folded into bulk requests of up to 100 ids: ~10 round trips instead of 1000.
+         */
+    }
+
+    private static void demo5(){
+        var stdout = Channels.newChannel(System.out);
+        Flux.range(1, 10)
+                .concatMap(id -> ByteBufs.using(productClient.getProductNameBytes(id),
+                        name -> ByteBufs.transferTo(Flux.just(name, NEWLINE.duplicate()), stdout)))
+                .reduce(0L, Long::sum)
+                .subscribe(Util.subscriber());
+        Util.sleep(2);
+
+        /*
+            The product names go from the socket buffer straight to stdout:
+            never copied into a String, never decoded. using() releases each body once written.
+         */
+    }
 }
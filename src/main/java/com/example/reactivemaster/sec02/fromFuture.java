@@ -15,7 +15,7 @@ public class fromFuture {
     private static CompletableFuture<String> getName() {
         return CompletableFuture.supplyAsync(()->{
            log.info("GENERATING NAME");
-           return Util.faker().name().fullName();
+           return Util.fakeData().name().fullName();
         });
     }
 
@@ -13,7 +13,7 @@ public class fromRunnable {
 
     private static Mono<String> getProductName(int productId){
         return productId==1
-                ? Mono.just(Util.faker().commerce().productName())
+                ? Mono.just(Util.fakeData().commerce().productName())
                 : Mono.fromRunnable(() -> notify(productId));
     }
 
@@ -1,7 +1,9 @@
 package com.example.reactivemaster.sec02;
 
 import com.example.reactivemaster.common.Util;
+import com.example.reactivemaster.primitive.IntFlux;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -16,7 +18,7 @@ public class monoDefer {
         log.info("ENTERING THE GET NAME METHOD");
         return Mono.fromSupplier(()->{
             log.info("GENERATING NAME");
-            return Util.faker().name().fullName();
+            return Util.fakeData().name().fullName();
         });
     }
 
@@ -51,4 +53,20 @@ public class monoDefer {
             This will neither create the publisher nor will execute it
          */
     }
+
+    private static void demo3(){
+        Flux.range(1, 10_000_000)
+                .reduce(0L, Long::sum)
+                .subscribe(Util.subscriber("BOXED"));
+
+        IntFlux.range(1, 10_000_000)
+                .sum()
+                .subscribe(Util.subscriber("PRIMITIVE"));
+
+        /*
+            Same sum as sum(list) above, over 10M ints.
+            The Flux.range version allocates an Integer and a Long and makes an onNext per value,
+            IntFlux makes one onNext and one int[256] per 256 values and adds them in a plain loop.
+         */
+    }
 }
@@ -1,8 +1,9 @@
 package com.example.reactivemaster.sec03;
 
+import com.example.reactivemaster.common.FrameDecoder;
+import com.example.reactivemaster.common.HttpClients;
 import com.example.reactivemaster.common.Util;
 import reactor.core.publisher.Flux;
-import reactor.netty.http.client.HttpClient;
 
 public class consumeFlux {
     public static void main(String[] args) {
@@ -12,10 +13,22 @@ public class consumeFlux {
     }
 
     public static  Flux<String> getNames(){
-        return HttpClient.create()
+        return HttpClients.shared()
                 .get()
-                .uri("localhost:7070/demo02/name/stream")
+                .uri("/demo02/name/stream")
                 .responseContent()
                 .asString();
     }
+
+    /*
+        getNames() emits whatever chunks the socket delivered, a name can be cut in two.
+        This emits exactly one item per "name\n" line, and reads the socket only as fast as it's consumed.
+     */
+    public static Flux<String> getNameRecords(){
+        return HttpClients.shared()
+                .get()
+                .uri("/demo02/name/stream")
+                .responseContent()
+                .transform(FrameDecoder::lines);
+    }
 }
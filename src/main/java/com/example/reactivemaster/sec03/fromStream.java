@@ -1,6 +1,7 @@
 package com.example.reactivemaster.sec03;
 
 import com.example.reactivemaster.common.Util;
+import com.example.reactivemaster.primitive.ChunkedFlux;
 import reactor.core.publisher.Flux;
 
 import java.util.List;
@@ -37,4 +38,23 @@ public class fromStream {
             Now both SAM AND TOM will consume the stream
          */
     }
+
+    private static void demo3(){
+        var words = List.of("reactive", "streams", "in", "chunks");
+
+        ChunkedFlux.from(Flux.range(1, 100_000))
+                .map(i -> words.get(i % words.size()))
+                .filter(word -> word.length() > 2)
+                .flatMapIterable(word -> List.of(word, word.toUpperCase()))
+                .toFlux()
+                .count()
+                .subscribe(Util.subscriber("CHUNKED"));
+
+        /*
+            Same result as Flux.range(...).map(...).filter(...).flatMapIterable(...).count()
+            but map, filter and flatMapIterable each see ~400 chunks of 256 elements
+            instead of 100_000 single elements: one onNext and one request per chunk.
+            toFlux() turns the chunks back into elements for the subscriber.
+         */
+    }
 }
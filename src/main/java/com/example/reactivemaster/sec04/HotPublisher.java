@@ -5,6 +5,9 @@ import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 public class HotPublisher {
@@ -327,7 +330,7 @@ public class HotPublisher {
     }
 
     private static Flux<Integer> stockStream(){
-        return Flux.<Integer>generate(sink ->sink.next(Util.faker().random().nextInt(10,100)))
+        return Flux.<Integer>generate(sink ->sink.next(Util.fakeData().random().nextInt(10,100)))
                 .doOnNext(x-> log.info("EMITTING PRICE: {}",x))
                 .delayElements(Duration.ofSeconds(3));
     }
@@ -425,4 +428,69 @@ public class HotPublisher {
 10:23:15.102 [parallel-7] INFO com.example.reactivemaster.sec04.HotPublisher -- EMITTING PRICE: 62
          */
     }
+
+    private static void demoHot11(){
+        var flux = Flux.range(1, 1_000_000)
+                .map(i -> "PRICE " + i)
+                .publish()
+                .autoConnect(2);
+
+        flux.subscribe(Util.metricsSubscriber("SAM", 100_000));
+        flux.subscribe(Util.metricsSubscriber("MIKE"));
+
+        /*
+            Hot source shared by 2 subs driven at full speed, the subs count
+            items and bytes instead of logging every single price.
+         */
+    }
+
+    private static void demoHot12(){
+        var symbols = List.of("AAPL", "MSFT", "GOOG", "AMZN", "NVDA");
+        var engine = TickerEngine.randomWalk(symbols, Duration.ofMillis(100)).start();
+
+        var ticks = new LongAdder();
+        for (int i = 0; i < 10_000; i++) {
+            engine.subscribe(symbols.get(i % symbols.size())).subscribe(tick -> ticks.increment());
+        }
+
+        Util.sleep(2);
+        log.info("SAM JOINING");
+        engine.subscribe("AAPL").subscribe(Util.subscriber("SAM"));
+
+        Util.sleep(2);
+        log.info("MIKE JOINING");
+        engine.subscribe(Set.of("MSFT", "NVDA")).subscribe(Util.subscriber("MIKE"));
+
+        Util.sleep(3);
+        log.info("TICKS DELIVERED TO THE 10000 COUNTING SUBS: {}", ticks.sum());
+        engine.dispose();
+
+        /*
+            One generator, one subscription to it, 10002 subs.
+            Sam and Mike get the last price of each of their symbols the moment they join
+            (like replay(1) in demoHot10), then only the ticks of their own symbols:
+            a tick is handed to the ~2000 subs of its symbol, not to all 10002.
+         */
+    }
+
+    private static void demoHot13(){
+        var prices = Flux.interval(Duration.ofMillis(1))
+                .map(i -> Util.fakeData().random().nextInt(10, 100));
+        var flux = RingReplay.ints(prices, 1_000, Duration.ofMillis(500));
+
+        flux.subscribe(Util.metricsSubscriber("SAM", 1_000));
+
+        Util.sleep(3);
+        log.info("MIKE JOINING");
+        flux.take(5).subscribe(Util.subscriber("MIKE"));
+
+        Util.sleep(1);
+
+        /*
+            demoHot10's replay(1) turned into "the last 1000 prices, none older than 500ms",
+            for a source ticking every millisecond: Mike joins after 3s and first gets the
+            prices of the last ~500ms, oldest first. They are kept in one int[1024] ring plus
+            its timestamps, reused over and over instead of a node per price.
+         */
+    }
 }
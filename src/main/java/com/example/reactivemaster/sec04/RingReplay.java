@@ -0,0 +1,290 @@
+package com.example.reactivemaster.sec04;
+
+import com.example.reactivemaster.common.DrainSubscription;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.util.annotation.Nullable;
+
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    replay(n) / cache(n, ttl) for high-rate hot streams, stored in a ring allocated once:
+    one array of values (int[], long[], double[] for the primitive variants, Object[] otherwise),
+    one long[] of timestamps and one long[] of sequence numbers. No node, no wrapper, no boxing
+    per stored item: 20-24 bytes per slot against a linked node + timestamp + boxed value.
+
+        stockStream().transform(prices -> RingReplay.ints(prices, 1024, Duration.ofSeconds(30)))
+
+    Like cache(), the source is subscribed once, on the first subscription, with unbounded demand.
+    A new subscriber first gets the stored items no older than maxAge (at most `capacity` of them),
+    then the live ones. A subscriber that falls more than `capacity` items behind skips ahead to the
+    last `capacity` items: the ring never grows for it.
+
+    One writer (the source), any number of readers, no locks: a slot's sequence number is
+    negated while it's rewritten, and a reader re-checks it after copying the slot out (seqlock).
+ */
+public final class RingReplay {
+
+    private RingReplay() {
+    }
+
+    public static <T> Flux<T> objects(Flux<T> source, int capacity, Duration maxAge) {
+        return new ReplayFlux<>(source, new ObjectRing<>(capacity, maxAge));
+    }
+
+    public static Flux<Integer> ints(Flux<Integer> source, int capacity, Duration maxAge) {
+        return new ReplayFlux<>(source, new IntRing(capacity, maxAge));
+    }
+
+    public static Flux<Long> longs(Flux<Long> source, int capacity, Duration maxAge) {
+        return new ReplayFlux<>(source, new LongRing(capacity, maxAge));
+    }
+
+    public static Flux<Double> doubles(Flux<Double> source, int capacity, Duration maxAge) {
+        return new ReplayFlux<>(source, new DoubleRing(capacity, maxAge));
+    }
+
+    private static final class ReplayFlux<T> extends Flux<T> {
+        private final Flux<T> source;
+        private final Ring<T> ring;
+        private final AtomicBoolean connected = new AtomicBoolean();
+
+        ReplayFlux(Flux<T> source, Ring<T> ring) {
+            this.source = source;
+            this.ring = ring;
+        }
+
+        @Override
+        public void subscribe(CoreSubscriber<? super T> actual) {
+            new Inner<>(ring, actual).start();
+            if(connected.compareAndSet(false, true)) source.subscribe(ring);
+        }
+    }
+
+    /*
+        The storage, and the subscriber to the source that fills it.
+        Slot i holds item #s when sequences[i] == s + 1; -(s + 1) while it's being written.
+     */
+    private abstract static class Ring<T> implements CoreSubscriber<T> {
+        final int capacity;
+        final int mask; // the ring itself is rounded up to a power of 2
+        final long maxAgeNanos;
+        final long[] timestamps;
+        final AtomicLongArray sequences;
+        final CopyOnWriteArrayList<Inner<T>> subscribers = new CopyOnWriteArrayList<>();
+        final AtomicLong written = new AtomicLong(); // items ever stored, the writer's next sequence
+        volatile boolean done;
+        volatile Throwable error;
+
+        Ring(int capacity, Duration maxAge) {
+            if(capacity <= 0) throw new IllegalArgumentException("CAPACITY MUST BE > 0");
+            var size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+            this.capacity = capacity;
+            this.mask = size - 1;
+            this.maxAgeNanos = maxAge.toNanos();
+            this.timestamps = new long[size];
+            this.sequences = new AtomicLongArray(size);
+        }
+
+        abstract void store(int index, T value);
+
+        abstract T load(int index);
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T value) {
+            var sequence = written.get();
+            var index = (int) (sequence & mask);
+            sequences.set(index, -(sequence + 1));
+            VarHandle.storeStoreFence(); // readers must not see the new value under the old sequence
+            store(index, value);
+            timestamps[index] = System.nanoTime();
+            sequences.set(index, sequence + 1); // volatile write: publishes the slot
+            written.set(sequence + 1);
+            subscribers.forEach(DrainSubscription::drain);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done = true;
+            subscribers.forEach(DrainSubscription::drain);
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            subscribers.forEach(DrainSubscription::drain);
+        }
+
+        // where a new subscriber starts: the oldest stored item that hasn't expired
+        long firstLive() {
+            var end = written.get();
+            var start = Math.max(0, end - capacity);
+            var oldestAllowed = System.nanoTime() - maxAgeNanos;
+            for (var sequence = start; sequence < end; sequence++) {
+                var index = (int) (sequence & mask);
+                var before = sequences.get(index);
+                var timestamp = timestamps[index];
+                VarHandle.loadLoadFence();
+                if(before == sequence + 1 && sequences.get(index) == before && timestamp - oldestAllowed >= 0) return sequence;
+            }
+            return end;
+        }
+
+        // the item #sequence, or null if it was overwritten by a newer one
+        @Nullable
+        T read(long sequence) {
+            var index = (int) (sequence & mask);
+            var before = sequences.get(index);
+            if(before != sequence + 1) return null;
+            var value = load(index);
+            VarHandle.loadLoadFence(); // the value is read before the sequence is checked again
+            return sequences.get(index) == before ? value : null;
+        }
+    }
+
+    private static final class ObjectRing<T> extends Ring<T> {
+        private final Object[] values;
+
+        ObjectRing(int capacity, Duration maxAge) {
+            super(capacity, maxAge);
+            this.values = new Object[mask + 1];
+        }
+
+        @Override
+        void store(int index, T value) {
+            values[index] = value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T load(int index) {
+            return (T) values[index];
+        }
+    }
+
+    private static final class IntRing extends Ring<Integer> {
+        private final int[] values;
+
+        IntRing(int capacity, Duration maxAge) {
+            super(capacity, maxAge);
+            this.values = new int[mask + 1];
+        }
+
+        @Override
+        void store(int index, Integer value) {
+            values[index] = value;
+        }
+
+        @Override
+        Integer load(int index) {
+            return values[index];
+        }
+    }
+
+    private static final class LongRing extends Ring<Long> {
+        private final long[] values;
+
+        LongRing(int capacity, Duration maxAge) {
+            super(capacity, maxAge);
+            this.values = new long[mask + 1];
+        }
+
+        @Override
+        void store(int index, Long value) {
+            values[index] = value;
+        }
+
+        @Override
+        Long load(int index) {
+            return values[index];
+        }
+    }
+
+    private static final class DoubleRing extends Ring<Double> {
+        private final double[] values;
+
+        DoubleRing(int capacity, Duration maxAge) {
+            super(capacity, maxAge);
+            this.values = new double[mask + 1];
+        }
+
+        @Override
+        void store(int index, Double value) {
+            values[index] = value;
+        }
+
+        @Override
+        Double load(int index) {
+            return values[index];
+        }
+    }
+
+    private static final class Inner<T> extends DrainSubscription<T> {
+        private final Ring<T> ring;
+        private long cursor; // drain loop only
+
+        Inner(Ring<T> ring, Subscriber<? super T> actual) {
+            super(actual);
+            this.ring = ring;
+            this.cursor = ring.firstLive();
+        }
+
+        @Override
+        @Nullable
+        protected T poll() {
+            while (true) {
+                var end = ring.written.get();
+                // more than `capacity` behind: skip to the oldest item it may still get,
+                // even if the ring (rounded up to a power of 2) still holds older ones
+                cursor = Math.max(cursor, end - ring.capacity);
+                if(cursor >= end) return null;
+                var value = ring.read(cursor);
+                if(value != null) {
+                    cursor++;
+                    return value;
+                }
+                cursor++; // overwritten while we read it, written has moved on
+            }
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            return cursor >= ring.written.get();
+        }
+
+        // read before `written`: every item stored before done is seen
+        @Override
+        protected boolean isDone() {
+            return ring.done;
+        }
+
+        @Override
+        @Nullable
+        protected Throwable error() {
+            return ring.error;
+        }
+
+        @Override
+        protected void register() {
+            ring.subscribers.add(this);
+        }
+
+        @Override
+        protected void unregister() {
+            ring.subscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.reactivemaster.sec04;
+
+public record Tick(String symbol, int price, long sequence) {
+}
@@ -0,0 +1,137 @@
+package com.example.reactivemaster.sec04;
+
+import com.example.reactivemaster.common.Util;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    stockStream().replay(1) from demoHot10, for many symbols at once.
+    ONE subscription to the source, every tick routed by symbol to that symbol's own
+    Sinks.many().replay().latest():
+      - a tick costs one map lookup plus one emit to the subscribers of ITS symbol only,
+        no matter how many symbols or subscribers exist overall;
+      - a subscriber joining late gets the symbol's last price right away (like replay(1)),
+        then the live ones;
+      - a slow subscriber skips to the latest price instead of buffering old ones:
+        the sink itself would keep every tick a subscriber hasn't requested, so each subscription
+        takes them unbounded and conflates with onBackpressureLatest. A stalled client costs one tick.
+
+    The source is expected to emit from one thread at a time, like any Flux does.
+    Once the source terminates or the engine is disposed, subscribe() ends right away the same way.
+ */
+@Slf4j
+public final class TickerEngine implements Disposable {
+    private final Flux<Tick> source;
+    private final ConcurrentHashMap<String, Route> symbols = new ConcurrentHashMap<>();
+    private volatile Disposable connection;
+    private volatile boolean closed; // disposed, or the source terminated
+    private volatile Throwable failure; // how the source terminated, null if it completed
+
+    public TickerEngine(Flux<Tick> source) {
+        this.source = source;
+    }
+
+    // one random walk tick per `interval`, for one of `symbols` picked at random
+    public static TickerEngine randomWalk(List<String> symbols, Duration interval) {
+        var prices = new int[symbols.size()];
+        Arrays.fill(prices, 50);
+        var source = Flux.interval(interval)
+                .map(sequence -> {
+                    var index = Util.fakeData().random().nextInt(symbols.size());
+                    var price = Math.max(1, prices[index] + Util.fakeData().random().nextInt(-3, 3));
+                    prices[index] = price; // interval emits on one thread at a time
+                    return new Tick(symbols.get(index), price, sequence);
+                });
+        return new TickerEngine(source);
+    }
+
+    public synchronized TickerEngine start() {
+        if(connection == null) {
+            connection = source.subscribe(this::route, this::close, () -> close(null));
+        }
+        return this;
+    }
+
+    public Flux<Tick> subscribe(String symbol) {
+        return Flux.defer(() -> {
+            if(closed) return failure == null ? Flux.<Tick>empty() : Flux.<Tick>error(failure);
+            var route = route(symbol);
+            if(closed) terminate(route); // a new route that close() may have missed
+            return route.sink().asFlux().onBackpressureLatest();
+        });
+    }
+
+    // prefetch 1: a stalled subscriber is held at most one tick per symbol behind the latest
+    public Flux<Tick> subscribe(Collection<String> symbols) {
+        return Flux.fromIterable(symbols).flatMap(this::subscribe, Math.max(1, symbols.size()), 1);
+    }
+
+    public Optional<Tick> lastTick(String symbol) {
+        var route = symbols.get(symbol);
+        return route == null ? Optional.empty() : Optional.ofNullable(route.last);
+    }
+
+    public int symbolCount() {
+        return symbols.size();
+    }
+
+    @Override
+    public void dispose() {
+        var current = connection;
+        if(current != null) current.dispose();
+        close(null);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        var current = connection;
+        return current != null && current.isDisposed();
+    }
+
+    private synchronized void close(@Nullable Throwable error) {
+        if(closed) return;
+        failure = error;
+        closed = true;
+        symbols.values().forEach(this::terminate);
+    }
+
+    private void terminate(Route route) {
+        var error = failure;
+        if(error == null) route.sink().tryEmitComplete();
+        else route.sink().tryEmitError(error);
+    }
+
+    private void route(Tick tick) {
+        var route = route(tick.symbol());
+        route.last = tick;
+        var result = route.sink().tryEmitNext(tick);
+        if(result.isFailure()) log.debug("DROPPED {}: {}", tick, result);
+    }
+
+    private Route route(String symbol) {
+        return symbols.computeIfAbsent(symbol, s -> new Route(Sinks.many().replay().latest()));
+    }
+
+    private static final class Route {
+        private final Sinks.Many<Tick> sink;
+        private volatile Tick last; // same tick the sink replays, readable without subscribing
+
+        Route(Sinks.Many<Tick> sink) {
+            this.sink = sink;
+        }
+
+        Sinks.Many<Tick> sink() {
+            return sink;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.reactivemaster.sec05;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.ParallelFlux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Comparator;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+    CPU-bound work spread over all cores: Flux.parallel(rails).runOn(scheduler) with the settings
+    that make it behave with uneven per-element cost.
+
+        var stage = ParallelStage.defaults();               // one rail per core, Schedulers.parallel()
+        stage.map(ids, Pricing::price)                      // fastest, any order
+        stage.mapOrdered(ids, Pricing::price)               // same order as `ids`
+        stage.reduce(numbers, () -> 0L, Long::sum, Long::sum)
+
+    Rails pull, they aren't assigned: parallel() hands the next element to a rail that has demand,
+    and with a runOn prefetch of 1 a rail only has demand once it's done with its element.
+    A rail stuck on an expensive element just stops asking while the others keep taking the rest.
+    That's the load balancing of work stealing, without the stealing. The default
+    runOn prefetch of 256 instead queues 256 elements per rail up front, and they all
+    wait behind the slow one.
+ */
+public final class ParallelStage {
+    public static final int DEFAULT_PREFETCH = 1;
+
+    private final int parallelism;
+    private final Scheduler scheduler;
+    private final int prefetch;
+
+    public ParallelStage(int parallelism, Scheduler scheduler, int prefetch) {
+        if(parallelism <= 0) throw new IllegalArgumentException("PARALLELISM MUST BE > 0");
+        if(prefetch <= 0) throw new IllegalArgumentException("PREFETCH MUST BE > 0");
+        this.parallelism = parallelism;
+        this.scheduler = scheduler;
+        this.prefetch = prefetch;
+    }
+
+    // as many rails as cores, on the scheduler sized for CPU work
+    public static ParallelStage defaults() {
+        return new ParallelStage(Runtime.getRuntime().availableProcessors(), Schedulers.parallel(), DEFAULT_PREFETCH);
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    // the rails themselves, already on the scheduler, for anything map/reduce don't cover
+    public <T> ParallelFlux<T> rails(Flux<T> source) {
+        return source.parallel(parallelism).runOn(scheduler, prefetch);
+    }
+
+    // results come out as soon as they're ready, in no particular order
+    public <T, R> Flux<R> map(Flux<T> source, Function<? super T, ? extends R> mapper) {
+        return rails(source).<R>map(mapper).sequential();
+    }
+
+    /*
+        Results in source order. Every element carries its index through the rails and the rails
+        are merged back by index: each rail is already in index order, so ordered() only has to
+        compare the heads of the rails. A slow element holds back the ones after it, not the work on them.
+     */
+    public <T, R> Flux<R> mapOrdered(Flux<T> source, Function<? super T, ? extends R> mapper) {
+        return rails(source.index())
+                .map(indexed -> new Indexed<R>(indexed.getT1(), mapper.apply(indexed.getT2())))
+                .ordered(Comparator.comparingLong(Indexed::index))
+                .map(Indexed::value);
+    }
+
+    /*
+        Each rail folds its own elements into its own accumulator, without any sharing,
+        then the rails' results are combined. `combiner` must agree with `accumulator`,
+        as with Stream.reduce: the grouping of elements into rails is arbitrary.
+     */
+    public <T, A> Mono<A> reduce(Flux<T> source, Supplier<A> initial, BiFunction<A, ? super T, A> accumulator, BinaryOperator<A> combiner) {
+        return rails(source)
+                .reduce(initial, accumulator)
+                .reduce(combiner);
+    }
+
+    private record Indexed<R>(long index, R value) {
+    }
+}
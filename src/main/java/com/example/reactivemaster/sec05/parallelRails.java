@@ -0,0 +1,73 @@
+package com.example.reactivemaster.sec05;
+
+import com.example.reactivemaster.common.Util;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.stream.IntStream;
+
+@Slf4j
+public class parallelRails {
+    public static void main(String[] args) {
+        demo3();
+    }
+
+    // CPU work whose cost depends on the element: counts the primes below x
+    private static long primesBelow(int x) {
+        return IntStream.range(2, x)
+                .filter(n -> IntStream.rangeClosed(2, (int) Math.sqrt(n)).noneMatch(d -> n % d == 0))
+                .count();
+    }
+
+    private static void demo1(){
+        var stage = ParallelStage.defaults();
+
+        stage.map(Flux.just(200_000, 10, 20, 30, 40, 50, 60, 70), x -> {
+                    log.info("COUNTING PRIMES BELOW {}", x);
+                    return primesBelow(x);
+                })
+                .subscribe(Util.subscriber());
+
+        Util.sleep(3);
+
+        /*
+            One rail per core (parallel-1, parallel-2, ...).
+            While one rail is busy with 200_000, the small elements go to the other rails and their results
+            come out first: with a prefetch of 1 a busy rail doesn't take any more elements.
+         */
+    }
+
+    private static void demo2(){
+        var stage = ParallelStage.defaults();
+
+        stage.mapOrdered(Flux.just(200_000, 10, 20, 30, 40, 50, 60, 70), parallelRails::primesBelow)
+                .subscribe(Util.subscriber());
+
+        Util.sleep(3);
+
+        /*
+            Same work, same threads, but the results come out in the order of the elements:
+            17984 first, then 4, 8, 10... The small ones are computed early and wait for it.
+         */
+    }
+
+    private static void demo3(){
+        var stage = ParallelStage.defaults();
+
+        stage.reduce(Flux.range(1, 10_000), () -> 0L, (sum, x) -> sum + primesBelow(x), Long::sum)
+                .subscribe(Util.subscriber("PARALLEL"));
+
+        Flux.range(1, 10_000)
+                .map(parallelRails::primesBelow)
+                .reduce(0L, Long::sum)
+                .subscribe(Util.subscriber("SEQUENTIAL"));
+
+        Util.sleep(10);
+
+        /*
+            The sum(list) of monoDefer, with a cost per element that grows with the element.
+            Each rail keeps its own running sum, the rails' sums are added at the end:
+            no lock, no shared counter. SEQUENTIAL runs on main, PARALLEL on every core.
+         */
+    }
+}
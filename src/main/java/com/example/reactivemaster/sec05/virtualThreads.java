@@ -1,10 +1,14 @@
 package com.example.reactivemaster.sec05;
 
 import com.example.reactivemaster.common.Util;
+import com.example.reactivemaster.common.VirtualThreadSchedulers;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+
 @Slf4j
 public class virtualThreads {
     public static void main(String[] args) {
@@ -48,7 +52,8 @@ public class virtualThreads {
     }
 
     private static void demo2(){
-        System.getProperty("reactor.Schedulers.defaultBoundedElasticOnVirtualThreads", "true");
+        // System.getProperty(...) only reads the flag, boundedElastic stayed on platform threads (FIRST1, false)
+        VirtualThreadSchedulers.installAsDefaultBoundedElastic("vt-elastic", VirtualThreadSchedulers.DEFAULT_MAX_CONCURRENCY);
         var flux = Flux.create(fluxSink -> {
                     for (int i = 1; i <= 3; i++) {
                         log.info("GENERATING :{}",i);
@@ -67,5 +72,27 @@ public class virtualThreads {
         Thread.ofPlatform().start(runnable1);
 
         Util.sleep(2);
+        VirtualThreadSchedulers.uninstall();
+
+        /*
+            Now FIRST1 is logged with true, and the thread names look like [vt-elastic-1]
+         */
+    }
+
+    private static void demo3(){
+        var scheduler = VirtualThreadSchedulers.newVirtual("vt", 20_000);
+        var start = System.nanoTime();
+
+        Flux.range(1, 20_000)
+                .flatMap(i -> Mono.fromRunnable(() -> Util.sleep(1)).subscribeOn(scheduler), 20_000)
+                .blockLast();
+
+        log.info("20000 BLOCKING SUBSCRIPTIONS DONE IN {} MS", Duration.ofNanos(System.nanoTime() - start).toMillis());
+        scheduler.dispose();
+
+        /*
+            Each subscription blocks for 1 sec, yet the whole thing takes a bit over a second
+            without 20000 platform threads, every Util.sleep just parks a virtual thread.
+         */
     }
 }
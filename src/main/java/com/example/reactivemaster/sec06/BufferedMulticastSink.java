@@ -0,0 +1,277 @@
+package com.example.reactivemaster.sec06;
+
+import com.example.reactivemaster.common.AbstractManySink;
+import com.example.reactivemaster.common.DrainSubscription;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscriber;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+    multicast().onBackpressureBuffer(n) shares ONE queue: the slowest subscriber holds back everyone
+    (sinkMany_multicast4). sinkMany_multicast6 fixes it with an unbounded onBackpressureBuffer() per sub.
+    Here every subscriber gets its own BOUNDED ring instead, and an OverflowPolicy saying what
+    happens when that ring is full:
+      DROP_OLDEST - the newest item overwrites the oldest one the sub hasn't read
+      DROP_NEWEST - the new item is not queued for that sub
+      ERROR       - the sub gets what's queued, then an overflow error
+      DISCONNECT  - the sub gets what's queued, then completes
+    Either way the emit returns OK and other subs are not affected: a laggard costs `capacity` slots, no more.
+    On top of that, monitor(SlowConsumerPolicy) evicts or demotes subs that stall (see checkSlowConsumers).
+
+    Each ring has exactly one producer (the emitting thread, try* calls are serialized) and one consumer
+    (whoever runs the sub's drain loop), so it needs no locks. Slots carry a sequence number like a seqlock,
+    which is what lets DROP_OLDEST overwrite without the producer touching the consumer's read index:
+    a reader that finds a newer sequence than expected knows it's been lapped and skips ahead.
+ */
+@Slf4j
+public final class BufferedMulticastSink<T> extends AbstractManySink<T, BufferedMulticastSink.Inner<T>> {
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        ERROR,
+        DISCONNECT
+    }
+
+    // marks a sub cut off by DISCONNECT, it completes instead of erroring
+    private static final Throwable DISCONNECTED = new IllegalStateException("DISCONNECTED") {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    };
+
+    private final int defaultCapacity;
+    private final OverflowPolicy defaultPolicy;
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final Sinks.Many<SlowConsumerEvent> slowConsumerEvents = Sinks.many().multicast().directBestEffort();
+
+    public BufferedMulticastSink(int defaultCapacity, OverflowPolicy defaultPolicy) {
+        this.defaultCapacity = defaultCapacity;
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    @Override
+    public Flux<T> asFlux() {
+        return asFlux(defaultCapacity, defaultPolicy);
+    }
+
+    // capacity is rounded up to a power of 2
+    public Flux<T> asFlux(int capacity, OverflowPolicy policy) {
+        if(capacity <= 0) throw new IllegalArgumentException("CAPACITY MUST BE > 0");
+        return Flux.<T>from(actual -> new Inner<>(this, actual, subscriberIds.incrementAndGet(), capacity, policy).start());
+    }
+
+    @Override
+    protected Sinks.EmitResult next(T value) {
+        if(subscribers.isEmpty()) return Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER;
+        for (var inner : subscribers) {
+            inner.offer(value);
+        }
+        return Sinks.EmitResult.OK;
+    }
+
+    /*
+        Starts checking every subscriber against `policy` every checkInterval, until disposed.
+        A subscriber too far behind, or sitting on unread items with no demand left for too long,
+        is evicted or demoted, and a SlowConsumerEvent is published on slowConsumerEvents().
+     */
+    public Disposable monitor(SlowConsumerPolicy policy) {
+        return Flux.interval(policy.checkInterval())
+                .subscribe(tick -> checkSlowConsumers(policy));
+    }
+
+    public Flux<SlowConsumerEvent> slowConsumerEvents() {
+        return slowConsumerEvents.asFlux();
+    }
+
+    // synchronized: several monitors may run, and the events sink wants one emitter at a time
+    synchronized void checkSlowConsumers(SlowConsumerPolicy policy) {
+        for (var inner : subscribers) {
+            if(inner.demoted) continue;
+            var lag = inner.lag();
+            var idle = inner.idle();
+            var slow = lag >= policy.maxLag() || lag > 0 && idle.compareTo(policy.maxIdle()) >= 0;
+            if(!slow) continue;
+
+            log.warn("SLOW SUBSCRIBER {}: {} ITEMS BEHIND, NO DEMAND FOR {} -> {}", inner.id, lag, idle, policy.action());
+            if(policy.action() == SlowConsumerPolicy.Action.EVICT)
+                inner.evict(new IllegalStateException("SUBSCRIBER " + inner.id + " EVICTED: " + lag + " ITEMS BEHIND"));
+            else
+                inner.demote();
+            slowConsumerEvents.tryEmitNext(new SlowConsumerEvent(inner.id, policy.action(), lag, idle, inner.dropped.get()));
+        }
+    }
+
+    // items dropped for all current subs by their overflow policies
+    public long droppedCount() {
+        return subscribers.stream().mapToLong(inner -> inner.dropped.get()).sum();
+    }
+
+    static final class Inner<T> extends DrainSubscription<T> {
+        private final BufferedMulticastSink<T> parent;
+        private final long id;
+        private final int mask;
+        private final AtomicReferenceArray<T> items;
+        private final AtomicLongArray sequences; // slot i holds item #(seq - 1); negative while being overwritten
+        private final AtomicLong tail = new AtomicLong(); // written by the producer only
+        private final AtomicLong head = new AtomicLong(); // written by the consumer only
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile OverflowPolicy policy;
+        private volatile Throwable overflow; // set when ERROR/DISCONNECT cut this sub off
+        private volatile long outOfDemandNanos = System.nanoTime(); // when requested last dropped to 0
+        private volatile Throwable evicted;
+        private volatile boolean demoted; // only the latest item is delivered
+
+        Inner(BufferedMulticastSink<T> parent, Subscriber<? super T> actual, long id, int capacity, OverflowPolicy policy) {
+            super(actual);
+            var size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+            this.parent = parent;
+            this.id = id;
+            this.mask = size - 1;
+            this.items = new AtomicReferenceArray<>(size);
+            this.sequences = new AtomicLongArray(size);
+            this.policy = policy;
+        }
+
+        // producer side
+        void offer(T value) {
+            if(overflow != null || isCancelled()) return;
+            var t = tail.get();
+            if(t - head.get() > mask) {
+                switch (policy) {
+                    case DROP_NEWEST -> {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    case ERROR -> {
+                        overflow = Exceptions.failWithOverflow("SUBSCRIBER " + id + " OVERFLOWED ITS " + (mask + 1) + " SLOTS");
+                        drain();
+                        return;
+                    }
+                    case DISCONNECT -> {
+                        overflow = DISCONNECTED;
+                        drain();
+                        return;
+                    }
+                    case DROP_OLDEST -> {
+                        // overwrite below, the consumer notices it was lapped
+                    }
+                }
+            }
+            var index = (int) (t & mask);
+            sequences.set(index, -(t + 1));
+            items.set(index, value);
+            sequences.set(index, t + 1);
+            tail.set(t + 1);
+            drain();
+        }
+
+        // consumer side: the next item, skipping whatever was overwritten, or null if the ring is empty
+        @Override
+        @Nullable
+        protected T poll() {
+            while (true) {
+                var h = head.get();
+                if(h == tail.get()) return null;
+                if(demoted && tail.get() - h > 1) {
+                    var latest = tail.get() - 1;
+                    dropped.addAndGet(latest - h);
+                    head.set(latest);
+                    continue;
+                }
+                var index = (int) (h & mask);
+                var before = sequences.get(index);
+                if(before == h + 1) {
+                    var value = items.get(index);
+                    if(sequences.get(index) == before) {
+                        // read: the ring no longer keeps it reachable. Put it back if DROP_OLDEST
+                        // started rewriting the slot, in case the producer's value was this same reference
+                        if(items.compareAndSet(index, value, null) && sequences.get(index) != before)
+                            items.compareAndSet(index, null, value);
+                        head.set(h + 1);
+                        return value;
+                    }
+                    continue; // overwritten while we read it, look again
+                }
+                if(Math.abs(before) > h + 1) {
+                    // lapped: everything older than tail - capacity is gone
+                    var oldest = Math.max(h + 1, tail.get() - (mask + 1));
+                    dropped.addAndGet(oldest - h);
+                    head.set(oldest);
+                }
+            }
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            return head.get() == tail.get();
+        }
+
+        @Override
+        protected boolean isDone() {
+            return overflow != null || parent.done;
+        }
+
+        @Override
+        @Nullable
+        protected Throwable error() {
+            var failure = overflow == null ? parent.error : overflow;
+            return failure == DISCONNECTED ? null : failure;
+        }
+
+        // no draining first, it's stalled
+        @Override
+        @Nullable
+        protected Throwable cutOff() {
+            return evicted;
+        }
+
+        @Override
+        protected void onDemandExhausted() {
+            outOfDemandNanos = System.nanoTime();
+        }
+
+        @Override
+        protected void register() {
+            parent.subscribers.add(this);
+        }
+
+        @Override
+        protected void unregister() {
+            parent.subscribers.remove(this);
+        }
+
+        long lag() {
+            return tail.get() - head.get();
+        }
+
+        /*
+            How long it's had no demand at all. A subscriber with demand left is never idle, however
+            long ago it requested: one request(Long.MAX_VALUE) is enough for a sub that keeps up.
+         */
+        Duration idle() {
+            if(requested() > 0) return Duration.ZERO;
+            return Duration.ofNanos(System.nanoTime() - outOfDemandNanos);
+        }
+
+        void evict(Throwable reason) {
+            evicted = reason;
+            drain();
+        }
+
+        void demote() {
+            policy = OverflowPolicy.DROP_OLDEST;
+            demoted = true;
+            drain();
+        }
+    }
+}
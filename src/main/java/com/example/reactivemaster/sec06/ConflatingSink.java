@@ -0,0 +1,87 @@
+package com.example.reactivemaster.sec06;
+
+import com.example.reactivemaster.common.AbstractManySink;
+import com.example.reactivemaster.common.DrainSubscription;
+import org.reactivestreams.Subscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    A multicast sink for "only the newest value matters" data (prices, gauges, positions).
+    Every subscriber gets ONE slot: each emit overwrites it and the subscriber takes whatever
+    is in there when it has demand.
+      - a subscriber keeping up sees every item,
+      - a slow one skips straight to the latest item instead of being buffered for (onBackpressureBuffer)
+        or losing items at random (directBestEffort),
+      - the producer never waits and never fails because of a slow subscriber,
+      - memory is one reference per subscriber, whatever the rate.
+
+    Emits are serialized like any other Sinks.many() (see AbstractManySink).
+ */
+public final class ConflatingSink<T> extends AbstractManySink<T, ConflatingSink.Inner<T>> {
+
+    @Override
+    protected Sinks.EmitResult next(T value) {
+        if(subscribers.isEmpty()) return Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER;
+        for (var inner : subscribers) {
+            inner.offer(value);
+        }
+        return Sinks.EmitResult.OK;
+    }
+
+    @Override
+    public Flux<T> asFlux() {
+        return Flux.<T>from(actual -> new Inner<>(this, actual).start());
+    }
+
+    static final class Inner<T> extends DrainSubscription<T> {
+        private final ConflatingSink<T> parent;
+        private final AtomicReference<T> slot = new AtomicReference<>();
+
+        Inner(ConflatingSink<T> parent, Subscriber<? super T> actual) {
+            super(actual);
+            this.parent = parent;
+        }
+
+        void offer(T value) {
+            slot.set(value); // overwrites whatever this subscriber hasn't taken yet
+            drain();
+        }
+
+        @Override
+        @Nullable
+        protected T poll() {
+            return slot.getAndSet(null);
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            return slot.get() == null;
+        }
+
+        @Override
+        protected boolean isDone() {
+            return parent.done;
+        }
+
+        @Override
+        @Nullable
+        protected Throwable error() {
+            return parent.error;
+        }
+
+        @Override
+        protected void register() {
+            parent.subscribers.add(this);
+        }
+
+        @Override
+        protected void unregister() {
+            parent.subscribers.remove(this);
+            slot.set(null);
+        }
+    }
+}
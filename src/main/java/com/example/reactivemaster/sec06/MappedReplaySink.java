@@ -0,0 +1,272 @@
+package com.example.reactivemaster.sec06;
+
+import com.example.reactivemaster.common.AbstractManySink;
+import com.example.reactivemaster.common.DrainSubscription;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/*
+    Sinks.many().replay().all() with the history on disk instead of the heap (sinkMany_replay).
+    Every item is serialized and appended to a log of fixed-size memory-mapped segment files:
+
+        segment-00000.log: [int length + 1][length bytes][int length + 1][length bytes]...[int -1]
+        segment-00001.log: ...
+
+    A record that doesn't fit the rest of a segment starts the next one (-1 marks the jump).
+    New segments are zero-filled and a header is written after its bytes, so the first 0 header
+    is the end of the log: a sink opened on a directory that already holds a log carries on
+    after the last record instead of overwriting it, and its subscribers replay the old records too.
+    The log IS the replay buffer: each subscriber only owns a cursor into it. A late subscriber reads
+    the log sequentially from the start and, once it reaches the end, simply keeps getting new
+    records as they're committed: replay and live are the same loop, nothing to hand over.
+
+    Heap stays flat however long the stream runs: the history lives in the page cache, each subscriber
+    costs a cursor and a demand counter. Only the writer appends, so emits are serialized like
+    any other sink (FAIL_NON_SERIALIZED). Records are visible to readers through the volatile
+    `committed` offset, written after the bytes.
+    A value that can't be stored (the serializer throws, or the record doesn't fit a segment) is not
+    thrown at the emitter: it terminates the sink with that error, tryEmitNext returns FAIL_TERMINATED
+    and the subscribers get onError. Nothing of it reaches the log.
+ */
+@Slf4j
+public final class MappedReplaySink<T> extends AbstractManySink<T, MappedReplaySink.Inner<T>> implements AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int END_OF_SEGMENT = -1;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-\\d{5}\\.log");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Serializer<T> serializer;
+    private final CopyOnWriteArrayList<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private long writeOffset; // writer only
+    private volatile long committed;
+    private volatile long count;
+
+    public MappedReplaySink(Path directory, int segmentSize, Serializer<T> serializer) {
+        if(segmentSize <= Integer.BYTES * 2) throw new IllegalArgumentException("SEGMENT SIZE TOO SMALL: " + segmentSize);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.serializer = serializer;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recover();
+    }
+
+    public MappedReplaySink(Path directory, Serializer<T> serializer) {
+        this(directory, DEFAULT_SEGMENT_SIZE, serializer);
+    }
+
+    @Override
+    protected Sinks.EmitResult next(T value) {
+        byte[] bytes;
+        try {
+            bytes = serializer.serialize(value);
+        } catch (RuntimeException e) {
+            return fail(e);
+        }
+        if(bytes.length > segmentSize - Integer.BYTES * 2)
+            return fail(new IllegalArgumentException("RECORD OF " + bytes.length + " BYTES DOES NOT FIT A " + segmentSize + " BYTES SEGMENT"));
+        append(bytes);
+        subscribers.forEach(DrainSubscription::drain);
+        return Sinks.EmitResult.OK;
+    }
+
+    // keeps room for the -1 marker after every record, so a reader can always tell where a segment ends
+    private void append(byte[] bytes) {
+        var position = (int) (writeOffset % segmentSize);
+        var segment = segments.get((int) (writeOffset / segmentSize));
+        if(position + Integer.BYTES * 2 + bytes.length > segmentSize) {
+            segment.putInt(position, END_OF_SEGMENT);
+            writeOffset += segmentSize - position;
+            segment = map((int) (writeOffset / segmentSize));
+            segments.add(segment);
+            position = 0;
+        }
+        segment.put(position + Integer.BYTES, bytes);
+        segment.putInt(position, bytes.length + 1); // after the bytes: a header is never there without its record
+        writeOffset += Integer.BYTES + bytes.length;
+        count = count + 1;
+        committed = writeOffset;
+    }
+
+    /*
+        Maps the segments already in the directory and walks the headers to the end of the log.
+        Anything that doesn't fit the format (a missing segment, a file of another size, a segment
+        past the end) is refused rather than overwritten: it's somebody's history.
+     */
+    private void recover() {
+        List<Path> files;
+        try (var listing = Files.list(directory)) {
+            files = listing.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches()).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if(files.isEmpty()) {
+            segments.add(map(0));
+            return;
+        }
+        for (int i = 0; i < files.size(); i++) {
+            var file = files.get(i);
+            if(!file.getFileName().toString().equals(segmentName(i)))
+                throw new IllegalStateException("MISSING " + segmentName(i) + " IN " + directory);
+            try {
+                if(Files.size(file) != segmentSize)
+                    throw new IllegalStateException(file + " IS NOT A " + segmentSize + " BYTES SEGMENT");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segments.add(map(i));
+        }
+
+        long offset = 0;
+        long records = 0;
+        while (true) {
+            var index = (int) (offset / segmentSize);
+            var position = (int) (offset % segmentSize);
+            var header = segments.get(index).getInt(position);
+            if(header == 0) break;
+            if(header == END_OF_SEGMENT) {
+                offset += segmentSize - position;
+                if(index + 1 == segments.size()) segments.add(map(index + 1)); // stopped right after the jump
+                continue;
+            }
+            if(header < 0 || position + Integer.BYTES * 2L + header - 1 > segmentSize)
+                throw new IllegalStateException("CORRUPT RECORD HEADER " + header + " AT OFFSET " + offset + " IN " + directory);
+            offset += Integer.BYTES + header - 1;
+            records++;
+        }
+        var last = (int) (offset / segmentSize);
+        if(last + 1 < segments.size())
+            throw new IllegalStateException(segmentName(last + 1) + " IS PAST THE END OF THE LOG IN " + directory);
+        writeOffset = offset;
+        count = records;
+        committed = offset;
+        log.info("OPENED {}: {} RECORDS IN {} SEGMENTS", directory, records, segments.size());
+    }
+
+    private static String segmentName(int index) {
+        return "segment-%05d.log".formatted(index);
+    }
+
+    private MappedByteBuffer map(int index) {
+        var file = directory.resolve(segmentName(index));
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize); // stays mapped after the channel is closed
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // replays the whole log, then follows it live
+    @Override
+    public Flux<T> asFlux() {
+        return Flux.<T>from(actual -> new Inner<>(this, actual).start());
+    }
+
+    @Override
+    @Nullable
+    public Object scanUnsafe(Attr key) {
+        if(key == Attr.BUFFERED) return (int) Math.min(Integer.MAX_VALUE, count);
+        return super.scanUnsafe(key);
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    // flushes the mapped segments to the files; without it the OS writes them back whenever it wants
+    public void force() {
+        segments.forEach(MappedByteBuffer::force);
+    }
+
+    /*
+        The files stay on disk, and the mappings live until the buffers are garbage collected:
+        there's no portable way to unmap. Live subscribers are completed.
+     */
+    @Override
+    public void close() {
+        tryEmitComplete();
+        force();
+    }
+
+    static final class Inner<T> extends DrainSubscription<T> {
+        private final MappedReplaySink<T> parent;
+        private long cursor; // drain loop only
+
+        Inner(MappedReplaySink<T> parent, Subscriber<? super T> actual) {
+            super(actual);
+            this.parent = parent;
+        }
+
+        @Override
+        @Nullable
+        protected T poll() {
+            return cursor < parent.committed ? read() : null;
+        }
+
+        @Override
+        protected boolean isEmpty() {
+            return cursor >= parent.committed;
+        }
+
+        // read before `committed`: every record written before done is seen
+        @Override
+        protected boolean isDone() {
+            return parent.done;
+        }
+
+        @Override
+        @Nullable
+        protected Throwable error() {
+            return parent.error;
+        }
+
+        @Override
+        protected void register() {
+            parent.subscribers.add(this);
+        }
+
+        @Override
+        protected void unregister() {
+            parent.subscribers.remove(this);
+        }
+
+        // the record at the cursor, which is < committed
+        private T read() {
+            var segmentSize = parent.segmentSize;
+            var segment = parent.segments.get((int) (cursor / segmentSize));
+            var position = (int) (cursor % segmentSize);
+            var header = segment.getInt(position);
+            if(header == END_OF_SEGMENT) {
+                cursor += segmentSize - position;
+                return read();
+            }
+            var length = header - 1;
+            var bytes = new byte[length];
+            segment.get(position + Integer.BYTES, bytes);
+            cursor += Integer.BYTES + length;
+            return parent.serializer.deserialize(bytes);
+        }
+    }
+}
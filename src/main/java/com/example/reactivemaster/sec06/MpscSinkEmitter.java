@@ -0,0 +1,102 @@
+package com.example.reactivemaster.sec06;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    sink_ThreadSafety1 makes concurrent producers spin on FAIL_NON_SERIALIZED until they get a turn.
+    Here producers never touch the sink: they offer to a lock-free multi-producer queue and
+    whoever moves `wip` from 0 becomes the one drainer that emits into the sink, the others
+    just leave their item and return. Nothing spins, nothing is dropped, and each producer's
+    items reach the sink in the order it offered them.
+
+    A rejected emit (FAIL_OVERFLOW on a bounded sink, FAIL_ZERO_SUBSCRIBER, FAIL_NON_SERIALIZED if someone
+    else emits into the sink directly) leaves the item at the head of the queue: the next emitNext/flush()
+    tries it again. FAIL_TERMINATED and FAIL_CANCELLED never go away: the emitter shuts down, drops
+    what's queued and emitNext returns false from then on.
+ */
+@Slf4j
+public final class MpscSinkEmitter<T> {
+    private final Sinks.Many<T> sink;
+    private final Queue<T> queue = Queues.<T>unboundedMultiproducer().get();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean terminated;
+    private volatile boolean rejected; // the sink itself terminated or was cancelled
+
+    public MpscSinkEmitter(Sinks.Many<T> sink) {
+        this.sink = sink;
+    }
+
+    /*
+        Safe from any number of threads; false once complete()/error() was called or the sink
+        stopped accepting items. As with any sink, an emit racing complete() may or may not make it.
+     */
+    public boolean emitNext(T value) {
+        if(done) return false;
+        queue.offer(value);
+        drain();
+        return !rejected;
+    }
+
+    public void complete() {
+        done = true;
+        drain();
+    }
+
+    public void error(Throwable failure) {
+        error = failure;
+        done = true;
+        drain();
+    }
+
+    public void flush() {
+        drain();
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    private void drain() {
+        if(wip.getAndIncrement() != 0) return;
+        var missed = 1;
+        do {
+            while (!terminated) {
+                var d = done; // read before peeking: an item offered before complete() is still emitted
+                var value = queue.peek();
+                if(value == null) {
+                    if(d) terminate();
+                    break;
+                }
+                var result = sink.tryEmitNext(value);
+                if(result == Sinks.EmitResult.FAIL_TERMINATED || result == Sinks.EmitResult.FAIL_CANCELLED) {
+                    log.warn("SINK REJECTED {}: {}, DROPPING {} QUEUED ITEMS", value, result, queue.size());
+                    rejected = true;
+                    done = true;
+                    terminated = true;
+                    break;
+                }
+                if(result.isFailure()) {
+                    log.debug("EMIT OF {} REJECTED: {}, KEPT FOR THE NEXT DRAIN", value, result);
+                    break;
+                }
+                queue.poll();
+            }
+            if(rejected) queue.clear(); // also what producers racing the shutdown offered
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void terminate() {
+        terminated = true;
+        var failure = error;
+        if(failure == null) sink.tryEmitComplete();
+        else sink.tryEmitError(failure);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.reactivemaster.sec06;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// how MappedReplaySink turns items into bytes on disk and back
+public interface Serializer<T> {
+
+    byte[] serialize(T value);
+
+    T deserialize(byte[] bytes);
+
+    static Serializer<String> utf8() {
+        return new Serializer<>() {
+            @Override
+            public byte[] serialize(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    static Serializer<Long> int64() {
+        return new Serializer<>() {
+            @Override
+            public byte[] serialize(Long value) {
+                return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+            }
+
+            @Override
+            public Long deserialize(byte[] bytes) {
+                return ByteBuffer.wrap(bytes).getLong();
+            }
+        };
+    }
+}
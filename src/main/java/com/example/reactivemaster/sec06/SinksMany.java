@@ -2,8 +2,10 @@ package com.example.reactivemaster.sec06;
 
 import com.example.reactivemaster.common.Util;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
 
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.concurrent.CompletableFuture;
@@ -74,6 +76,28 @@ public class SinksMany {
         log.info("LIST SIZE: {}", list.size()); // it WILL print 999
     }
 
+    public static void sink_ThreadSafety2(){
+        var sink = Sinks.many().unicast().onBackpressureBuffer();
+        var emitter = new MpscSinkEmitter<>(sink);
+        var flux = sink.asFlux();
+        var list = new ArrayList<>();
+        flux.subscribe(list::add);
+        for(int i=0;i<1000;i++){
+            var j = i;
+            CompletableFuture.runAsync(()->{
+                emitter.emitNext(j);
+            });
+        }
+        Util.sleep(10);
+        log.info("LIST SIZE: {}", list.size()); // it WILL print 1000
+
+        /*
+            Same result as sink_ThreadSafety1 without the retry loop: a thread that finds
+            another one emitting leaves its item in the emitter's queue and moves on,
+            the emitting thread picks it up before it lets go.
+         */
+    }
+
     public static void sinkMany_multicast(){
         // handle through which we would push items
         // onBackPressureBuffer - bounded queue
@@ -897,7 +921,122 @@ public class SinksMany {
          */
     }
 
+    public static void sinkMany_metrics(){
+        var sink = Sinks.many().multicast().directBestEffort();
+        var flux = sink.asFlux();
+        flux.subscribe(Util.metricsSubscriber("sam", 100_000));
+        flux.subscribe(Util.metricsSubscriber("mike"));
+
+        for (int i = 1; i <= 1_000_000; i++) {
+            sink.tryEmitNext(i);
+        }
+        sink.tryEmitComplete();
+
+        /*
+            Same fan-out as the multicast demos, but the subs only count what they get
+            so the sink runs at full speed instead of waiting on SLF4J for every item.
+            sam logs one sample per 100K items, both log a summary line on completion.
+         */
+    }
+
+    private static void sinkMany_conflating(){
+        var sink = new ConflatingSink<Integer>();
+        var flux = sink.asFlux();
+
+        flux.subscribe(Util.subscriber("sam"));
+        flux.limitRate(1).delayElements(Duration.ofMillis(200)).subscribe(Util.subscriber("mike"));
+
+        // one price every 20ms
+        Flux.range(1, 50)
+                .delayElements(Duration.ofMillis(20))
+                .doOnComplete(sink::tryEmitComplete)
+                .subscribe(i -> log.info("item: {}, result: {}", i, sink.tryEmitNext(i)));
 
+        Util.sleep(3);
 
+        /*
+            Same setup as sinkMany_multicast3/4: sam is fast, mike takes 200ms per item.
+            Sam gets all 50 and every emit returns OK, mike doesn't hold anybody back:
+            each time he's ready he gets the newest price (1, 2, 12, 22, 32, 42, 50 or so)
+            and the ones in between are overwritten in his single slot.
+         */
+    }
 
+    private static void sinkMany_perSubscriberBuffer(){
+        var sink = new BufferedMulticastSink<Integer>(16, BufferedMulticastSink.OverflowPolicy.DROP_OLDEST);
+        var flux = sink.asFlux();
+
+        flux.subscribe(Util.subscriber("sam"));
+        flux.delayElements(Duration.ofMillis(200)).subscribe(Util.subscriber("mike"));
+        sink.asFlux(16, BufferedMulticastSink.OverflowPolicy.DISCONNECT)
+                .delayElements(Duration.ofMillis(200))
+                .subscribe(Util.subscriber("jake"));
+
+        for (int i = 1; i <= 100; i++) {
+            var result = sink.tryEmitNext(i);
+            log.info("item: {}, result: {}", i, result);
+        }
+        sink.tryEmitComplete();
+
+        Util.sleep(10);
+
+        /*
+            sinkMany_multicast4 again, but mike and jake each have their own 16 slots:
+            every emit is OK and sam gets all 100 items right away.
+            mike (DROP_OLDEST) gets what delayElements prefetched, then the 16 newest items (85..100).
+            jake (DISCONNECT) gets what he had queued, then is completed: he was cut off at the first overflow.
+         */
+    }
+
+    private static void sinkMany_slowConsumers(){
+        var sink = new BufferedMulticastSink<Integer>(256, BufferedMulticastSink.OverflowPolicy.DROP_OLDEST);
+        var monitor = sink.monitor(SlowConsumerPolicy.builder()
+                .maxLag(10)
+                .maxIdle(Duration.ofSeconds(1))
+                .checkInterval(Duration.ofMillis(100))
+                .action(SlowConsumerPolicy.Action.EVICT)
+                .build());
+        sink.slowConsumerEvents().subscribe(Util.subscriber("ALERTS"));
+
+        var flux = sink.asFlux();
+        flux.subscribe(Util.subscriber("sam"));
+        flux.delayElements(Duration.ofMillis(200)).subscribe(Util.subscriber("mike"));
+
+        Flux.range(1, 50)
+                .delayElements(Duration.ofMillis(20))
+                .doOnComplete(sink::tryEmitComplete)
+                .subscribe(i -> log.info("item: {}, result: {}", i, sink.tryEmitNext(i)));
+
+        Util.sleep(3);
+        monitor.dispose();
+
+        /*
+            In sinkMany_multicast7 (directAllOrNothing) mike being slow made every emit fail, for sam too.
+            Here emits keep returning OK and sam gets all 50; once mike is 10 items behind the monitor
+            cuts him off with an error and ALERTS receives a SlowConsumerEvent saying so.
+            With Action.DEMOTE mike would stay subscribed, getting only the newest item each time he asks.
+         */
+    }
+
+    public static void sinkMany_replayFromDisk(){
+        var directory = Path.of(System.getProperty("java.io.tmpdir"), "reactive-master-replay");
+        try (var sink = new MappedReplaySink<Long>(directory, Serializer.int64())) {
+            for (long i = 1; i <= 5_000_000; i++) {
+                sink.tryEmitNext(i);
+            }
+            log.info("LOG HOLDS {} ITEMS IN {} SEGMENTS", sink.size(), sink.segmentCount());
+
+            sink.asFlux().subscribe(Util.metricsSubscriber("late sub", 1_000_000));
+            sink.tryEmitNext(5_000_001L);
+        }
+
+        /*
+            sinkMany_replay keeps every item on the heap for late subs, forever.
+            Here the 5M items (12 bytes each with the length prefix) sit in memory-mapped files,
+            the late sub replays all of them from disk, then gets 5_000_001 live,
+            and the heap never holds more than the item being delivered.
+            Run it again: the sink reopens the log where the last run left it, appends 5M more items
+            and the late sub replays all 10M. Delete the directory to start over.
+         */
+    }
 }
@@ -0,0 +1,7 @@
+package com.example.reactivemaster.sec06;
+
+import java.time.Duration;
+
+// published by BufferedMulticastSink.slowConsumerEvents() every time the monitor acts on a subscriber
+public record SlowConsumerEvent(long subscriberId, SlowConsumerPolicy.Action action, long lag, Duration idle, long dropped) {
+}
@@ -0,0 +1,32 @@
+package com.example.reactivemaster.sec06;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/*
+    When a BufferedMulticastSink subscriber counts as stalled, and what to do about it.
+    A subscriber is slow when it's `maxLag` or more items behind, or when it has items waiting
+    and has had no outstanding demand for `maxIdle`. Checked every `checkInterval`.
+
+    SlowConsumerPolicy.builder().maxLag(1_000).maxIdle(Duration.ofSeconds(5)).action(Action.EVICT).build()
+ */
+@Builder(toBuilder = true)
+public record SlowConsumerPolicy(
+        long maxLag,
+        Duration maxIdle,
+        Duration checkInterval,
+        Action action
+) {
+    public enum Action {
+        EVICT,  // its queue is dropped and it fails with an IllegalStateException
+        DEMOTE  // kept, but from now on only gets the latest item whenever it asks
+    }
+
+    public SlowConsumerPolicy {
+        if(maxLag <= 0) throw new IllegalArgumentException("MAX LAG MUST BE > 0");
+        if(maxIdle == null) maxIdle = Duration.ofSeconds(30);
+        if(checkInterval == null) checkInterval = Duration.ofSeconds(1);
+        if(action == null) action = Action.EVICT;
+    }
+}
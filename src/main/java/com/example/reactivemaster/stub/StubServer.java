@@ -0,0 +1,114 @@
+package com.example.reactivemaster.stub;
+
+import com.example.reactivemaster.common.FakeData;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/*
+    In-process stand-in for the demo service on localhost:7070, so the clients in sec02/sec03
+    can be exercised (and load tested) without it:
+
+      GET /demo/01/product/{id}          -> "product-{id}"
+      GET /demo/01/products?ids=1,2,3    -> one "id,name" line per id (ids <= 0 are unknown)
+      GET /demo02/name/stream            -> `streamLength` names, one "name\n" per `streamInterval`
+
+    Latency and the error rate apply to every route. Run main() to serve on 7070, or in tests:
+
+      try (var server = StubServer.start(StubServerSettings.defaults().toBuilder().port(0).build())) {
+          var client = HttpClients.create(HttpClientSettings.defaults().toBuilder().baseUrl(server.baseUrl()).build());
+          ...
+      }
+ */
+@Slf4j
+public final class StubServer implements AutoCloseable {
+    private final StubServerSettings settings;
+    private final DisposableServer server;
+    private final LongAdder requests = new LongAdder();
+
+    private StubServer(StubServerSettings settings) {
+        this.settings = settings;
+        this.server = HttpServer.create()
+                .port(settings.port())
+                .route(routes -> routes
+                        .get("/demo/01/product/{id}", (req, res) -> handle(res, Mono.fromSupplier(() -> productName(req.param("id")))))
+                        .get("/demo/01/products", (req, res) -> handle(res, Mono.fromSupplier(() -> products(req))))
+                        .get("/demo02/name/stream", (req, res) -> handle(res, names())))
+                .bindNow();
+        log.info("STUB SERVER LISTENING ON {}", baseUrl());
+    }
+
+    public static StubServer start(StubServerSettings settings) {
+        return new StubServer(settings);
+    }
+
+    public static void main(String[] args) {
+        StubServer.start(StubServerSettings.defaults()).server.onDispose().block();
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Publisher<Void> handle(HttpServerResponse res, Publisher<String> body) {
+        return delay().then(Mono.defer(() -> failNow()
+                ? res.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send().then()
+                : res.sendString(body).then()));
+    }
+
+    private Flux<String> names() {
+        var names = Flux.range(0, settings.streamLength())
+                .map(i -> FakeData.instance().name().firstName() + "\n");
+        return settings.streamInterval().isPositive() ? names.delayElements(settings.streamInterval()) : names;
+    }
+
+    private String products(HttpServerRequest req) {
+        var ids = new QueryStringDecoder(req.uri()).parameters().get("ids");
+        if(ids == null) return "";
+        return ids.stream()
+                .flatMap(param -> Arrays.stream(param.split(",")))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty() && Integer.parseInt(id) > 0)
+                .map(id -> id + "," + productName(id) + "\n")
+                .collect(Collectors.joining());
+    }
+
+    private String productName(String id) {
+        var name = "product-" + id;
+        return name.length() >= settings.payloadSize() ? name : name + "-".repeat(settings.payloadSize() - name.length());
+    }
+
+    private Mono<Void> delay() {
+        requests.increment();
+        return settings.latency().isPositive() ? Mono.delay(settings.latency()).then() : Mono.empty();
+    }
+
+    private boolean failNow() {
+        return settings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.reactivemaster.stub;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/*
+    Knobs for StubServer.
+    StubServerSettings.defaults().toBuilder().port(0).latency(Duration.ofMillis(20)).errorRate(0.01).build()
+ */
+@Builder(toBuilder = true)
+public record StubServerSettings(
+        int port,                // 0 picks a free port
+        Duration latency,        // added before every response
+        double errorRate,        // share of requests answered with a 500, 0.0 - 1.0
+        int payloadSize,         // product names are padded up to this many bytes
+        int streamLength,        // names sent by /demo02/name/stream
+        Duration streamInterval  // pause between two streamed names
+) {
+    public static StubServerSettings defaults() {
+        return StubServerSettings.builder()
+                .port(7070)
+                .latency(Duration.ZERO)
+                .errorRate(0.0)
+                .payloadSize(0)
+                .streamLength(10)
+                .streamInterval(Duration.ofMillis(500))
+                .build();
+    }
+}
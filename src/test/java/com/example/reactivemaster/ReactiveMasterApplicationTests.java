@@ -1,17 +1,61 @@
 package com.example.reactivemaster;
 
+import com.example.reactivemaster.common.BatchLoader;
+import com.example.reactivemaster.common.ByteBufs;
+import com.example.reactivemaster.common.FrameDecoder;
+import com.example.reactivemaster.common.HttpClientSettings;
+import com.example.reactivemaster.common.HttpClients;
+import com.example.reactivemaster.common.Resilience;
+import com.example.reactivemaster.common.ResilienceSettings;
+import com.example.reactivemaster.common.SingleFlight;
 import com.example.reactivemaster.common.Util;
+import com.example.reactivemaster.common.VirtualThreadSchedulers;
+import com.example.reactivemaster.primitive.ChunkedFlux;
+import com.example.reactivemaster.primitive.DoubleFlux;
+import com.example.reactivemaster.primitive.IntFlux;
+import com.example.reactivemaster.sec01.publisher.PublisherImpl;
+import com.example.reactivemaster.sec01.subscriber.PrefetchSubscriberImpl;
 import com.example.reactivemaster.sec01.subscriber.SubscriberImpl;
+import com.example.reactivemaster.sec02.ProductClient;
+import com.example.reactivemaster.sec04.RingReplay;
+import com.example.reactivemaster.sec04.Tick;
+import com.example.reactivemaster.sec04.TickerEngine;
+import com.example.reactivemaster.sec05.ParallelStage;
+import com.example.reactivemaster.sec06.BufferedMulticastSink;
+import com.example.reactivemaster.sec06.ConflatingSink;
+import com.example.reactivemaster.sec06.MappedReplaySink;
+import com.example.reactivemaster.sec06.MpscSinkEmitter;
+import com.example.reactivemaster.sec06.Serializer;
+import com.example.reactivemaster.sec06.SlowConsumerPolicy;
+import com.example.reactivemaster.stub.StubServer;
+import com.example.reactivemaster.stub.StubServerSettings;
+import io.netty.buffer.Unpooled;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
 import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.server.HttpServer;
 import reactor.test.StepVerifier;
+import reactor.test.subscriber.TestSubscriber;
 import reactor.util.retry.Retry;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.time.LocalTime;
@@ -19,12 +63,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 class ReactiveMasterApplicationTests {
@@ -220,6 +269,899 @@ class ReactiveMasterApplicationTests {
          */
     }
 
+    @Test
+    void publisherImplRequestFromOnNext(){
+        var received = new AtomicInteger();
+        var completed = new AtomicBoolean();
+        PublisherImpl.range(1, 1_000_000).subscribe(new BaseSubscriber<Integer>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                received.incrementAndGet();
+                request(1); // re-entrant request, must not recurse
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completed.set(true);
+            }
+        });
+
+        assert received.get() == 1_000_000 && completed.get();
+    }
+
+    @Test
+    void publisherImplClampsRequests(){
+        StepVerifier.create(PublisherImpl.emails(), 0)
+                .thenRequest(3)
+                .expectNextCount(3)
+                .thenRequest(11) // only 7 left, clamped instead of failing
+                .expectNextCount(7)
+                .verifyComplete();
+
+        StepVerifier.create(PublisherImpl.fromIterable(List.of(1, 2, 3)))
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+    }
+
+    @Test
+    void prefetchSubscriberReplenishesInBatches(){
+        var requests = new ArrayList<Long>();
+        var items = new ArrayList<Integer>();
+        Flux.range(1, 100)
+                .doOnRequest(requests::add)
+                .subscribe(new PrefetchSubscriberImpl<>(16, items::add));
+
+        assert items.size() == 100;
+        assert requests.get(0) == 16 && requests.stream().skip(1).allMatch(n -> n == 12); // 16 * 0.75
+    }
+
+    @Test
+    void metricsSubscriber(){
+        var sub = Util.<String>metricsSubscriber("metrics");
+        Flux.just("ab", "cde", "f").subscribe(sub);
+
+        assert sub.itemCount() == 3 && sub.byteCount() == 6;
+    }
+
+    @Test
+    void fakeDataFromManyThreads(){
+        Flux.range(1, 10_000)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .map(i -> Util.fakeData().random().nextInt(10, 100) + ":" + Util.fakeData().internet().emailAddress())
+                .sequential()
+                .as(StepVerifier::create)
+                .thenConsumeWhile(x -> {
+                    var price = Integer.parseInt(x.substring(0, x.indexOf(':')));
+                    return price >= 10 && price <= 100 && x.contains("@");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void virtualThreadScheduler(){
+        var scheduler = VirtualThreadSchedulers.newVirtual("vt-test", 2);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        Flux.range(1, 6)
+                .flatMap(i -> Mono.fromSupplier(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    LockSupport.parkNanos(Duration.ofMillis(50).toNanos());
+                    running.decrementAndGet();
+                    return Thread.currentThread();
+                }).subscribeOn(scheduler))
+                .as(StepVerifier::create)
+                .thenConsumeWhile(t -> t.isVirtual() && t.getName().startsWith("vt-test-"))
+                .verifyComplete();
+        assert maxRunning.get() <= 2;
+
+        // a Worker runs its tasks one at a time, in the order they were scheduled
+        var worker = scheduler.createWorker();
+        var order = Sinks.many().unicast().<Integer>onBackpressureBuffer();
+        var overlap = new AtomicBoolean();
+        for (int i = 0; i < 50; i++) {
+            var task = i;
+            worker.schedule(() -> {
+                if(running.incrementAndGet() > 1) overlap.set(true);
+                LockSupport.parkNanos(Duration.ofMillis(1).toNanos());
+                running.decrementAndGet();
+                order.tryEmitNext(task);
+            });
+        }
+        order.asFlux()
+                .take(50)
+                .as(StepVerifier::create)
+                .expectNextSequence(IntStream.range(0, 50).boxed().toList())
+                .verifyComplete();
+        worker.dispose();
+        assert !overlap.get();
+
+        // and it can schedule with a delay
+        Mono.delay(Duration.ofMillis(10), scheduler)
+                .as(StepVerifier::create)
+                .expectNext(0L)
+                .verifyComplete();
+        scheduler.dispose();
+
+        VirtualThreadSchedulers.installAsDefaultBoundedElastic("vt-elastic", 100);
+        try {
+            Mono.fromSupplier(() -> Thread.currentThread().isVirtual())
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .as(StepVerifier::create)
+                    .expectNext(true)
+                    .verifyComplete();
+        } finally {
+            VirtualThreadSchedulers.uninstall();
+        }
+    }
+
+    @Test
+    void sharedHttpClientReusesConnections(){
+        var connections = new AtomicInteger();
+        var server = HttpServer.create()
+                .port(0)
+                .doOnChannelInit((observer, channel, address) -> connections.incrementAndGet())
+                .route(routes -> routes.get("/demo/01/product/{id}",
+                        (req, res) -> res.sendString(Mono.just("product-" + req.param("id")))))
+                .bindNow();
+        try {
+            var client = HttpClients.create(HttpClientSettings.defaults().toBuilder()
+                    .baseUrl("http://localhost:" + server.port())
+                    .build());
+            Flux.range(1, 20)
+                    .concatMap(i -> client.get().uri("/demo/01/product/" + i).responseContent().aggregate().asString())
+                    .as(StepVerifier::create)
+                    .expectNextCount(20)
+                    .verifyComplete();
+            assert connections.get() <= 2 : connections.get(); // the next call may start before the previous connection is back in the pool
+        } finally {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void byteBufPassThrough(){
+        var server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/demo/01/product/{id}",
+                        (req, res) -> res.sendString(Mono.just("product-" + req.param("id")))))
+                .bindNow();
+        try {
+            var productClient = new ProductClient(HttpClients.create(HttpClientSettings.defaults().toBuilder()
+                    .baseUrl("http://localhost:" + server.port())
+                    .build()));
+
+            var body = productClient.getProductNameBytes(7).block();
+            assert body != null && body.toString(StandardCharsets.UTF_8).equals("product-7"); // still readable: we hold a reference
+            body.release();
+
+            var out = new ByteArrayOutputStream();
+            Flux.range(1, 5)
+                    .concatMap(id -> ByteBufs.using(productClient.getProductNameBytes(id),
+                            name -> ByteBufs.transferTo(Flux.just(name), Channels.newChannel(out))))
+                    .reduce(0L, Long::sum)
+                    .as(StepVerifier::create)
+                    .expectNext(45L)
+                    .verifyComplete();
+            assert out.toString(StandardCharsets.UTF_8).equals("product-1product-2product-3product-4product-5");
+        } finally {
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void stubServer(){
+        var settings = StubServerSettings.defaults().toBuilder()
+                .port(0)
+                .latency(Duration.ofMillis(10))
+                .streamLength(50)
+                .streamInterval(Duration.ZERO)
+                .build();
+        try (var server = StubServer.start(settings)) {
+            var client = HttpClients.create(HttpClientSettings.defaults().toBuilder().baseUrl(server.baseUrl()).build());
+            var productClient = new ProductClient(client);
+
+            productClient.getProductName(2)
+                    .as(StepVerifier::create)
+                    .expectNext("product-2")
+                    .verifyComplete();
+
+            Flux.range(-1, 200)
+                    .flatMap(productClient::getProductNameBatched)
+                    .as(StepVerifier::create)
+                    .expectNextCount(198) // -1 and 0 are unknown
+                    .verifyComplete();
+
+            client.get().uri("/demo02/name/stream")
+                    .responseContent()
+                    .as(FrameDecoder::lines)
+                    .as(StepVerifier::create)
+                    .expectNextCount(50)
+                    .verifyComplete();
+        }
+
+        try (var failing = StubServer.start(settings.toBuilder().errorRate(1.0).build())) {
+            var client = HttpClients.create(HttpClientSettings.defaults().toBuilder().baseUrl(failing.baseUrl()).build());
+            new ProductClient(client).getProductName(2)
+                    .as(StepVerifier::create)
+                    .verifyErrorMessage("PRODUCT 2 LOOKUP FAILED: 500 Internal Server Error");
+            assert failing.requestCount() == 3; // 1 + 2 retries (ResilienceSettings.defaults())
+        }
+    }
+
+    @Test
+    void singleFlight(){
+        var singleFlight = new SingleFlight<Integer, String>();
+        var calls = new AtomicInteger();
+        Function<Integer, Mono<String>> loader = id -> Mono.fromSupplier(() -> "product-" + id + "-" + calls.incrementAndGet())
+                .delayElement(Duration.ofMillis(200));
+
+        Flux.range(1, 100)
+                .flatMap(i -> singleFlight.execute(2, loader))
+                .distinct()
+                .as(StepVerifier::create)
+                .expectNext("product-2-1")
+                .verifyComplete();
+        assert calls.get() == 1 && singleFlight.inFlightCount() == 0;
+
+        singleFlight.execute(2, loader)
+                .as(StepVerifier::create)
+                .expectNext("product-2-2") // evicted on completion, so a new call
+                .verifyComplete();
+    }
+
+    @Test
+    void batchLoader(){
+        var batches = new ArrayList<List<Integer>>();
+        var loader = new BatchLoader<Integer, String>(ids -> {
+            synchronized (batches) {
+                batches.add(ids);
+            }
+            return Mono.just(ids.stream()
+                    .filter(id -> id != 13)
+                    .collect(Collectors.toMap(id -> id, id -> "product-" + id)));
+        }, 100, Duration.ofMillis(50));
+
+        Flux.range(1, 250)
+                .flatMap(id -> loader.load(id).map(name -> name.equals("product-" + id)))
+                .as(StepVerifier::create)
+                .expectNextCount(249) // 13 is unknown and completes empty
+                .verifyComplete();
+        loader.dispose();
+
+        assert batches.size() == 3 && batches.stream().allMatch(batch -> batch.size() <= 100);
+        loader.load(1)
+                .as(StepVerifier::create)
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void frameDecoder(){
+        // record boundaries deliberately fall in the middle of chunks
+        Flux.just("sam\nmi", "ke\r\n", "", "jo", "hn\nlast")
+                .map(chunk -> Unpooled.copiedBuffer(chunk, StandardCharsets.UTF_8))
+                .as(FrameDecoder::lines)
+                .as(StepVerifier::create)
+                .expectNext("sam", "mike", "john", "last")
+                .verifyComplete();
+
+        var framed = Unpooled.buffer();
+        for (var name : List.of("sam", "", "mike")) {
+            framed.writeInt(name.length()).writeCharSequence(name, StandardCharsets.UTF_8);
+        }
+        Flux.range(0, framed.readableBytes())
+                .map(i -> framed.slice(i, 1)) // one byte per chunk
+                .as(content -> FrameDecoder.decode(content, FrameDecoder.Framing.LENGTH_PREFIXED, 16, 4))
+                .as(StepVerifier::create)
+                .expectNext("sam", "", "mike")
+                .verifyComplete();
+
+        Flux.just(Unpooled.copiedBuffer("x".repeat(20), StandardCharsets.UTF_8))
+                .as(content -> FrameDecoder.decode(content, FrameDecoder.Framing.NEWLINE, 16, 4))
+                .as(StepVerifier::create)
+                .verifyErrorMessage("FRAME EXCEEDS 16 BYTES");
+    }
+
+    @Test
+    void resilienceHedgesSlowCalls(){
+        var resilience = new Resilience(ResilienceSettings.defaults().toBuilder().minSamples(5).build());
+        assert resilience.hedgeDelay().isZero(); // read before any sample, must not leave a stale empty snapshot
+        Flux.range(1, 5)
+                .concatMap(i -> Mono.just(i).delayElement(Duration.ofMillis(10)).transform(resilience::apply))
+                .blockLast();
+        assert resilience.hedgeDelay().toMillis() >= 10 && resilience.timeout().toMillis() >= 50;
+
+        // the first subscription hangs, the hedge fired after ~p95 answers
+        var attempts = new AtomicInteger();
+        var call = Mono.defer(() -> attempts.incrementAndGet() == 1 ? Mono.<String>never() : Mono.just("hedged"));
+        call.transform(resilience::apply)
+                .as(StepVerifier::create)
+                .expectNext("hedged")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        assert attempts.get() == 2;
+
+        // the first subscription FAILS while the hedge is in flight: the hedge's answer still wins, nothing retried
+        var patient = new Resilience(ResilienceSettings.defaults().toBuilder().minSamples(5).minTimeout(Duration.ofSeconds(1)).build());
+        Flux.range(1, 5)
+                .concatMap(i -> Mono.just(i).delayElement(Duration.ofMillis(10)).transform(patient::apply))
+                .blockLast();
+        var raced = new AtomicInteger();
+        var flaky = Mono.defer(() -> raced.incrementAndGet() == 1
+                ? Mono.<String>error(new IllegalStateException("DOWN")).delaySubscription(Duration.ofMillis(30))
+                : Mono.just("hedged").delayElement(Duration.ofMillis(60)));
+        var tokens = patient.budget().tokens();
+        flaky.transform(patient::apply)
+                .as(StepVerifier::create)
+                .expectNext("hedged")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        assert raced.get() == 2 && patient.budget().tokens() < tokens; // the hedge's token only, no retry
+    }
+
+    @Test
+    void resilienceRetryBudget(){
+        var resilience = new Resilience(ResilienceSettings.defaults().toBuilder()
+                .maxRetries(3)
+                .retryBackoff(Duration.ofMillis(20))
+                .budgetRatio(0)
+                .budgetCapacity(4)
+                .build());
+        var attempts = new AtomicInteger();
+        var failing = Mono.<String>defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new IllegalStateException("DOWN"));
+        });
+
+        var start = System.nanoTime();
+        failing.transform(resilience::apply)
+                .as(StepVerifier::create)
+                .verifyErrorMessage("DOWN");
+        assert attempts.get() == 4; // 1 + 3 retries
+        assert Duration.ofNanos(System.nanoTime() - start).toMillis() >= 70; // backoffs of at least 10, 20, 40 ms
+
+        // only one token left: one retry, then the original error right away
+        failing.transform(resilience::apply)
+                .as(StepVerifier::create)
+                .verifyErrorMessage("DOWN");
+        assert attempts.get() == 6 && resilience.budget().tokens() == 0;
+    }
+
+    @Test
+    void tickerEngine(){
+        var source = Sinks.many().multicast().<Tick>directBestEffort();
+        var engine = new TickerEngine(source.asFlux()).start();
+        source.tryEmitNext(new Tick("AAPL", 10, 1));
+        source.tryEmitNext(new Tick("MSFT", 20, 2));
+        source.tryEmitNext(new Tick("AAPL", 11, 3));
+        assert engine.lastTick("AAPL").orElseThrow().price() == 11 && engine.lastTick("GOOG").isEmpty();
+
+        engine.subscribe(List.of("AAPL", "GOOG"))
+                .map(Tick::price)
+                .as(StepVerifier::create)
+                .expectNext(11) // the cached last AAPL price, nothing for GOOG yet
+                .then(() -> {
+                    source.tryEmitNext(new Tick("MSFT", 21, 4));
+                    source.tryEmitNext(new Tick("GOOG", 30, 5));
+                })
+                .expectNext(30)
+                .then(engine::dispose)
+                .verifyComplete();
+        assert engine.symbolCount() == 3;
+        engine.subscribe("NFLX") // after dispose: ends right away instead of hanging
+                .as(StepVerifier::create)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        var failing = Sinks.many().multicast().<Tick>directBestEffort();
+        var failedEngine = new TickerEngine(failing.asFlux()).start();
+        failing.tryEmitError(new IllegalStateException("FEED DOWN"));
+        failedEngine.subscribe("AAPL")
+                .as(StepVerifier::create)
+                .expectErrorMessage("FEED DOWN")
+                .verify(Duration.ofSeconds(1));
+
+        // a subscriber that stalls skips to the latest tick, the engine doesn't queue the ones it missed
+        var ticks = Sinks.many().multicast().<Tick>directBestEffort();
+        var stalledEngine = new TickerEngine(ticks.asFlux()).start();
+        var stalled = TestSubscriber.builder().initialRequest(1).<Tick>build();
+        stalledEngine.subscribe("AAPL").subscribe(stalled);
+        for (int i = 1; i <= 1_000; i++) {
+            ticks.tryEmitNext(new Tick("AAPL", i, i));
+        }
+        stalled.request(3);
+        ticks.tryEmitNext(new Tick("AAPL", 1_001, 1_001));
+        assert stalled.getReceivedOnNext().stream().map(Tick::sequence).toList().equals(List.of(1L, 1_000L, 1_001L)) : stalled.getReceivedOnNext();
+        stalledEngine.dispose();
+    }
+
+    @Test
+    void conflatingSink(){
+        var sink = new ConflatingSink<Integer>();
+        var fast = new ArrayList<Integer>();
+        sink.asFlux().subscribe(fast::add);
+
+        var slow = new ArrayList<Integer>();
+        var slowSub = new BaseSubscriber<Integer>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(Integer value) {
+                slow.add(value);
+            }
+        };
+        sink.asFlux().subscribe(slowSub);
+
+        for (int i = 1; i <= 5; i++) {
+            assert sink.tryEmitNext(i) == Sinks.EmitResult.OK; // never held back by the slow sub
+        }
+        assert slow.equals(List.of(1)) : slow;
+        slowSub.request(1);
+        assert slow.equals(List.of(1, 5)) : slow; // 2, 3 and 4 were overwritten while it had no demand
+        sink.tryEmitComplete();
+        assert slowSub.isDisposed();
+
+        assert fast.equals(List.of(1, 2, 3, 4, 5)) && sink.currentSubscriberCount() == 0;
+        assert sink.tryEmitNext(6) == Sinks.EmitResult.FAIL_TERMINATED;
+    }
+
+    @Test
+    void bufferedMulticastSink(){
+        var sink = new BufferedMulticastSink<Integer>(4, BufferedMulticastSink.OverflowPolicy.DROP_OLDEST);
+        var fast = new ArrayList<Integer>();
+        sink.asFlux().subscribe(fast::add);
+        var dropOldest = TestSubscriber.<Integer>builder().initialRequest(0).build();
+        var dropNewest = TestSubscriber.<Integer>builder().initialRequest(0).build();
+        var error = TestSubscriber.<Integer>builder().initialRequest(0).build();
+        var disconnect = TestSubscriber.<Integer>builder().initialRequest(0).build();
+        sink.asFlux().subscribe(dropOldest);
+        sink.asFlux(4, BufferedMulticastSink.OverflowPolicy.DROP_NEWEST).subscribe(dropNewest);
+        sink.asFlux(4, BufferedMulticastSink.OverflowPolicy.ERROR).subscribe(error);
+        sink.asFlux(4, BufferedMulticastSink.OverflowPolicy.DISCONNECT).subscribe(disconnect);
+
+        for (int i = 1; i <= 10; i++) {
+            assert sink.tryEmitNext(i) == Sinks.EmitResult.OK; // none of the 4 stalled subs holds it back
+        }
+        sink.tryEmitComplete();
+        assert fast.equals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+
+        List.of(dropOldest, dropNewest, error, disconnect).forEach(sub -> sub.request(10));
+        assert dropOldest.getReceivedOnNext().equals(List.of(7, 8, 9, 10)) && dropOldest.isTerminatedComplete();
+        assert dropNewest.getReceivedOnNext().equals(List.of(1, 2, 3, 4)) && dropNewest.isTerminatedComplete();
+        assert error.getReceivedOnNext().equals(List.of(1, 2, 3, 4)) && Exceptions.isOverflow(error.expectTerminalError());
+        assert disconnect.getReceivedOnNext().equals(List.of(1, 2, 3, 4)) && disconnect.isTerminatedComplete();
+
+        // a consumer on another thread racing the producer: never a duplicate, a gap-free tail, last item last
+        var racing = new BufferedMulticastSink<Integer>(64, BufferedMulticastSink.OverflowPolicy.DROP_OLDEST);
+        var received = racing.asFlux()
+                .publishOn(Schedulers.parallel(), 8)
+                .collectList()
+                .toFuture();
+        for (int i = 1; i <= 1_000_000; i++) {
+            racing.tryEmitNext(i);
+        }
+        racing.tryEmitComplete();
+        var items = received.join();
+        for (int i = 1; i < items.size(); i++) {
+            assert items.get(i) > items.get(i - 1) : items.get(i - 1) + " THEN " + items.get(i);
+        }
+        assert items.getLast() == 1_000_000;
+
+        // a delivered item isn't kept reachable by the ring
+        var held = new BufferedMulticastSink<Object>(4, BufferedMulticastSink.OverflowPolicy.DROP_OLDEST);
+        held.asFlux().subscribe();
+        var payload = new Object();
+        var delivered = new WeakReference<>(payload);
+        held.tryEmitNext(payload);
+        payload = null;
+        for (int i = 0; i < 50 && delivered.get() != null; i++) {
+            System.gc();
+            Mono.delay(Duration.ofMillis(10)).block();
+        }
+        assert delivered.get() == null && held.currentSubscriberCount() == 1;
+    }
+
+    @Test
+    void slowConsumerMonitor(){
+        for (var action : SlowConsumerPolicy.Action.values()) {
+            var sink = new BufferedMulticastSink<Integer>(64, BufferedMulticastSink.OverflowPolicy.DROP_OLDEST);
+            var fast = new ArrayList<Integer>();
+            sink.asFlux().subscribe(fast::add);
+            var stalled = TestSubscriber.<Integer>builder().initialRequest(1).build();
+            sink.asFlux().subscribe(stalled);
+            var events = sink.slowConsumerEvents().take(1).as(StepVerifier::create);
+
+            for (int i = 1; i <= 20; i++) {
+                sink.tryEmitNext(i);
+            }
+            var monitor = sink.monitor(SlowConsumerPolicy.builder()
+                    .maxLag(10)
+                    .checkInterval(Duration.ofMillis(20))
+                    .action(action)
+                    .build());
+            events.assertNext(event -> {
+                        assert event.action() == action && event.lag() == 19 : event;
+                    })
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(1));
+            monitor.dispose();
+
+            if(action == SlowConsumerPolicy.Action.EVICT) {
+                assert stalled.expectTerminalError().getMessage().equals("SUBSCRIBER 2 EVICTED: 19 ITEMS BEHIND");
+                assert sink.currentSubscriberCount() == 1;
+            } else {
+                stalled.request(3);
+                sink.tryEmitNext(21);
+                assert stalled.getReceivedOnNext().equals(List.of(1, 20, 21)) : stalled.getReceivedOnNext(); // skipped to the latest
+            }
+            assert fast.size() == 20 || fast.size() == 21;
+        }
+
+        // unbounded demand that keeps up is never idle, even though it requested only once
+        var sink = new BufferedMulticastSink<Integer>(1024, BufferedMulticastSink.OverflowPolicy.DROP_OLDEST);
+        var received = new AtomicInteger();
+        var failure = new AtomicReference<Throwable>();
+        sink.asFlux().subscribe(x -> received.incrementAndGet(), failure::set);
+        var events = new AtomicInteger();
+        sink.slowConsumerEvents().subscribe(event -> events.incrementAndGet());
+        var monitor = sink.monitor(SlowConsumerPolicy.builder()
+                .maxLag(1_000_000)
+                .maxIdle(Duration.ofMillis(5))
+                .checkInterval(Duration.ofMillis(1))
+                .build());
+        var emitted = 0;
+        var until = System.nanoTime() + Duration.ofMillis(300).toNanos();
+        while (System.nanoTime() < until) {
+            sink.tryEmitNext(emitted++);
+        }
+        monitor.dispose();
+        assert failure.get() == null : failure.get();
+        assert events.get() == 0;
+        assert received.get() == emitted;
+    }
+
+    @Test
+    void mpscSinkEmitter(){
+        var sink = Sinks.many().unicast().<long[]>onBackpressureBuffer();
+        var emitter = new MpscSinkEmitter<>(sink);
+        var producers = 8;
+        var perProducer = 100_000;
+        var lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        var count = sink.asFlux()
+                .doOnNext(item -> {
+                    var producer = (int) item[0];
+                    assert item[1] == lastSeen[producer] + 1 : "OUT OF ORDER"; // per producer order is kept
+                    lastSeen[producer] = item[1];
+                })
+                .count()
+                .toFuture();
+
+        Flux.range(0, producers)
+                .parallel(producers)
+                .runOn(Schedulers.parallel())
+                .doOnNext(producer -> {
+                    for (long i = 0; i < perProducer; i++) {
+                        emitter.emitNext(new long[]{producer, i});
+                    }
+                })
+                .sequential()
+                .blockLast();
+        emitter.complete();
+
+        assert count.join() == (long) producers * perProducer && emitter.pending() == 0;
+        assert !emitter.emitNext(new long[]{0, 0});
+
+        // a sink that terminated or was cancelled never takes items again: nothing is queued for it
+        var closed = Sinks.many().multicast().<Integer>onBackpressureBuffer();
+        var closedEmitter = new MpscSinkEmitter<>(closed);
+        closed.tryEmitComplete();
+        assert !closedEmitter.emitNext(1) && !closedEmitter.emitNext(2) && closedEmitter.pending() == 0;
+
+        var unicast = Sinks.many().unicast().<Integer>onBackpressureBuffer();
+        var unicastEmitter = new MpscSinkEmitter<>(unicast);
+        unicast.asFlux().take(1).subscribe();
+        assert unicastEmitter.emitNext(1); // take(1) cancels right after it
+        assert !unicastEmitter.emitNext(2) && unicastEmitter.pending() == 0;
+    }
+
+    @Test
+    void mappedReplaySink(@TempDir Path directory){
+        try (var sink = new MappedReplaySink<String>(directory, 4096, Serializer.utf8())) {
+            var early = new ArrayList<String>();
+            sink.asFlux().subscribe(early::add);
+            for (int i = 1; i <= 1_000; i++) {
+                sink.tryEmitNext("item-" + i);
+            }
+            assert sink.segmentCount() > 1 && early.size() == 1_000;
+
+            // replays from disk a page at a time, then switches to live items
+            sink.asFlux()
+                    .as(flux -> StepVerifier.create(flux, 10))
+                    .expectNextSequence(early.subList(0, 10))
+                    .thenRequest(990)
+                    .expectNextCount(989)
+                    .expectNext("item-1000")
+                    .thenRequest(1)
+                    .then(() -> sink.tryEmitNext("live"))
+                    .expectNext("live")
+                    .then(sink::tryEmitComplete)
+                    .verifyComplete();
+        }
+
+        // reopening the directory carries on after the old records instead of overwriting them
+        int segments;
+        try (var reopened = new MappedReplaySink<String>(directory, 4096, Serializer.utf8())) {
+            assert reopened.size() == 1_001;
+            reopened.tryEmitNext("after restart");
+            segments = reopened.segmentCount();
+            reopened.asFlux()
+                    .as(StepVerifier::create)
+                    .expectNext("item-1", "item-2")
+                    .expectNextCount(998)
+                    .expectNext("live", "after restart")
+                    .then(reopened::tryEmitComplete)
+                    .verifyComplete();
+        }
+
+        // a segment past the end of the log is somebody's data: refused, not overwritten
+        var stray = directory.resolve("segment-%05d.log".formatted(segments));
+        try {
+            Files.write(stray, new byte[4096]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            new MappedReplaySink<String>(directory, 4096, Serializer.utf8());
+            assert false : "STRAY SEGMENT ACCEPTED";
+        } catch (IllegalStateException e) {
+            assert e.getMessage().contains("PAST THE END OF THE LOG") : e.getMessage();
+        }
+
+        // a record that doesn't fit a segment is reported, not thrown: the sink ends with the error
+        try (var oversized = new MappedReplaySink<String>(directory.resolve("oversized"), 4096, Serializer.utf8())) {
+            var subscriber = TestSubscriber.<String>create();
+            oversized.asFlux().subscribe(subscriber);
+            assert oversized.tryEmitNext("x".repeat(5_000)) == Sinks.EmitResult.FAIL_TERMINATED;
+            assert subscriber.expectTerminalError().getMessage().contains("DOES NOT FIT") && oversized.size() == 0;
+            assert oversized.tryEmitNext("small") == Sinks.EmitResult.FAIL_TERMINATED;
+        }
+    }
+
+    @Test
+    void ringReplay(){
+        var subscriptions = new AtomicInteger();
+        var cached = RingReplay.ints(Flux.range(1, 100).doOnSubscribe(s -> subscriptions.incrementAndGet()), 10, Duration.ofMinutes(1));
+        cached.as(StepVerifier::create)
+                .expectNextCount(100)
+                .verifyComplete();
+        cached.as(StepVerifier::create)
+                .expectNext(91, 92, 93, 94, 95, 96, 97, 98, 99, 100) // count bound: only the last 10
+                .verifyComplete();
+        assert subscriptions.get() == 1;
+
+        var source = Sinks.many().multicast().<Double>directBestEffort();
+        var prices = RingReplay.doubles(source.asFlux(), 16, Duration.ofMillis(100));
+        prices.subscribe();
+        source.tryEmitNext(1.5);
+        source.tryEmitNext(2.5);
+        Mono.delay(Duration.ofMillis(150)).block();
+        source.tryEmitNext(3.5);
+        prices.take(2)
+                .as(StepVerifier::create)
+                .expectNext(3.5) // age bound: 1.5 and 2.5 expired
+                .then(() -> source.tryEmitNext(4.5))
+                .expectNext(4.5)
+                .verifyComplete();
+
+        // a lagging subscriber skips ahead to the last `capacity` items, not the last 16 the ring holds
+        var live = Sinks.many().multicast().<Integer>directBestEffort();
+        var lagging = RingReplay.ints(live.asFlux(), 10, Duration.ofMinutes(1));
+        lagging.as(flux -> StepVerifier.create(flux, 1))
+                .then(() -> Flux.range(1, 100).subscribe(live::tryEmitNext))
+                .expectNext(1)
+                .then(live::tryEmitComplete)
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext(91, 92, 93, 94, 95, 96, 97, 98, 99, 100)
+                .verifyComplete();
+    }
+
+    @Test
+    void primitiveFlux(){
+        IntFlux.range(1, 1_000)
+                .map(x -> x * 2)
+                .filter(x -> x % 3 == 0)
+                .sum()
+                .as(StepVerifier::create)
+                .expectNext(Flux.range(1, 1_000).map(x -> x * 2).filter(x -> x % 3 == 0).reduce(0L, Long::sum).block())
+                .verifyComplete();
+
+        IntFlux.range(0, 600)
+                .window(250)
+                .map(window -> window.length)
+                .as(StepVerifier::create)
+                .expectNext(250, 250, 100) // windows cut across the 256 value chunks
+                .verifyComplete();
+
+        IntFlux.from(Flux.range(1, 5))
+                .mapToLong(x -> x * 10_000_000_000L)
+                .reduce(0, Math::max)
+                .as(StepVerifier::create)
+                .expectNext(50_000_000_000L)
+                .verifyComplete();
+
+        DoubleFlux.fromArray(1.5, 2.5, 3.0)
+                .map(x -> x * 2)
+                .toFlux()
+                .as(StepVerifier::create)
+                .expectNext(3.0, 5.0, 6.0)
+                .verifyComplete();
+
+        // the array is copied when the flux is built, not when it's subscribed to
+        var values = new int[]{1, 2, 3};
+        var fromValues = IntFlux.fromArray(values);
+        values[0] = 100;
+        fromValues.toFlux()
+                .as(StepVerifier::create)
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+    }
+
+    @Test
+    void chunkedFlux(){
+        var requests = new AtomicInteger();
+        ChunkedFlux.from(Flux.range(1, 1_000).doOnRequest(n -> requests.incrementAndGet()))
+                .map(x -> "item-" + x)
+                .filter(s -> s.endsWith("7"))
+                .flatMapIterable(s -> List.of(s, s.toUpperCase()))
+                .publishOn(Schedulers.parallel())
+                .toFlux()
+                .as(StepVerifier::create)
+                .expectNext("item-7", "ITEM-7", "item-17", "ITEM-17")
+                .expectNextCount(196)
+                .verifyComplete();
+        assert requests.get() < 10; // the source is requested a chunk at a time, not per element
+
+        // same with a source that can't be fused
+        var hiddenRequests = new AtomicInteger();
+        ChunkedFlux.from(Flux.range(1, 1_000).hide().doOnRequest(n -> hiddenRequests.incrementAndGet()))
+                .map(x -> x * 2)
+                .count()
+                .as(StepVerifier::create)
+                .expectNext(1_000L)
+                .verifyComplete();
+        assert hiddenRequests.get() < 10 : hiddenRequests.get();
+
+        ChunkedFlux.from(Flux.range(1, 600), 250)
+                .mapNotNull(x -> x % 2 == 0 ? x : null)
+                .chunks()
+                .map(List::size)
+                .as(StepVerifier::create)
+                .expectNext(125, 125, 50)
+                .verifyComplete();
+
+        ChunkedFlux.fromList(List.of("a", "bb", "ccc"))
+                .mapToInt(String::length)
+                .sum()
+                .as(StepVerifier::create)
+                .expectNext(6L)
+                .verifyComplete();
+    }
+
+    @Test
+    void parallelStage(){
+        var scheduler = Schedulers.newParallel("stage", 4);
+        try {
+            var stage = new ParallelStage(4, scheduler, ParallelStage.DEFAULT_PREFETCH);
+            var threads = new ConcurrentHashMap<Integer, String>();
+            stage.map(Flux.range(0, 100), x -> {
+                        threads.put(x, Thread.currentThread().getName());
+                        LockSupport.parkNanos(Duration.ofMillis(x == 0 ? 300 : 1).toNanos());
+                        return x;
+                    })
+                    .as(StepVerifier::create)
+                    .expectNextCount(100)
+                    .verifyComplete();
+            var slowRail = threads.get(0);
+            var onSlowRail = threads.values().stream().filter(slowRail::equals).count();
+            assert onSlowRail < 5; // the other rails took the rest while it was busy
+
+            stage.mapOrdered(Flux.range(0, 50), x -> {
+                        LockSupport.parkNanos(Duration.ofMillis(x % 7).toNanos());
+                        return x * 2;
+                    })
+                    .collectList()
+                    .as(StepVerifier::create)
+                    .expectNext(IntStream.range(0, 50).map(x -> x * 2).boxed().toList())
+                    .verifyComplete();
+
+            stage.reduce(Flux.range(1, 10_000), () -> 0L, (sum, x) -> sum + x, Long::sum)
+                    .as(StepVerifier::create)
+                    .expectNext(50_005_000L)
+                    .verifyComplete();
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    void sinksSignalOnSubscribeFirst(@TempDir Path directory){
+        List<Sinks.Many<String>> sinks = List.of(
+                new ConflatingSink<>(),
+                new BufferedMulticastSink<>(4, BufferedMulticastSink.OverflowPolicy.ERROR),
+                new MappedReplaySink<>(directory, 4096, Serializer.utf8()));
+        for (var sink : sinks) {
+            // the sink terminates while onSubscribe is still running: onComplete must wait for it (rule 1.9)
+            var signals = new ArrayList<String>();
+            sink.asFlux().subscribe(new BaseSubscriber<>() {
+                @Override
+                protected void hookOnSubscribe(Subscription subscription) {
+                    sink.tryEmitComplete();
+                    signals.add("onSubscribe");
+                }
+
+                @Override
+                protected void hookOnComplete() {
+                    signals.add("onComplete");
+                }
+            });
+            assert signals.equals(List.of("onSubscribe", "onComplete")) : sink + " " + signals;
+        }
+
+        // a bad request from inside onNext: the §3.9 error waits for onNext to return (rule 1.3).
+        // A CoreSubscriber, a plain Subscriber would be wrapped in reactor's own StrictSubscriber
+        var signals = new ArrayList<String>();
+        var conflating = new ConflatingSink<String>();
+        conflating.asFlux().subscribe(new CoreSubscriber<>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(String value) {
+                signals.add("onNext start");
+                subscription.request(-1);
+                signals.add("onNext end");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                signals.add(t.getClass().getSimpleName());
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("onComplete");
+            }
+        });
+        conflating.tryEmitNext("a");
+        assert signals.equals(List.of("onNext start", "onNext end", "IllegalArgumentException")) : signals;
+        assert conflating.currentSubscriberCount() == 0;
+
+        // cancelled from onSubscribe: never registered
+        var sink = new ConflatingSink<String>();
+        sink.asFlux().subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                cancel();
+            }
+        });
+        assert sink.currentSubscriberCount() == 0;
+    }
+
     @Test
     void synchronousSink(){
         Flux.generate(synchronousSink -> {